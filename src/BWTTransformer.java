@@ -2,30 +2,64 @@ import java.util.*;
 
 public class BWTTransformer {
     
-    // Прямое преобразование BWT
+    // Прямое преобразование BWT.
+    // Циклические сдвиги сортируются через суффиксный массив (SA-IS) удвоенной
+    // строки: первые n символов суффикса s+s, начинающегося в i < n, — это сдвиг i.
     public static BWTResult forwardBWT(String input) {
         int n = input.length();
+        if (n == 0) return new BWTResult("", -1);
         
-        // Создаем все циклические сдвиги
-        String[] rotations = new String[n];
+        int[] s = SuffixArray.toRanks(input);
+        int upper = 0;
+        for (int v : s) upper = Math.max(upper, v);
+        int[] rotations = sortRotations(s, upper);
+        
+        // Получаем последний столбец и индекс исходной строки
+        char[] lastColumn = new char[n];
+        int originalIndex = -1;
         for (int i = 0; i < n; i++) {
-            rotations[i] = input.substring(i) + input.substring(0, i);
+            int start = rotations[i];
+            lastColumn[i] = input.charAt(start == 0 ? n - 1 : start - 1);
+            if (start == 0) originalIndex = i;
         }
         
-        // Сортируем сдвиги
-        Arrays.sort(rotations);
+        return new BWTResult(new String(lastColumn), originalIndex);
+    }
+    
+    // Прямое преобразование BWT для байтов (тот же порядок сдвигов)
+    public static BWTBytesResult forwardBWT(byte[] input) {
+        int n = input.length;
+        if (n == 0) return new BWTBytesResult(new byte[0], -1);
+        
+        int[] s = new int[n];
+        for (int i = 0; i < n; i++) s[i] = input[i] & 0xFF;
+        int[] rotations = sortRotations(s, 255);
         
-        // Получаем последний столбец и индекс исходной строки
-        StringBuilder lastColumn = new StringBuilder();
+        byte[] lastColumn = new byte[n];
         int originalIndex = -1;
         for (int i = 0; i < n; i++) {
-            lastColumn.append(rotations[i].charAt(n - 1));
-            if (rotations[i].equals(input)) {
-                originalIndex = i;
-            }
+            int start = rotations[i];
+            lastColumn[i] = input[start == 0 ? n - 1 : start - 1];
+            if (start == 0) originalIndex = i;
         }
         
-        return new BWTResult(lastColumn.toString(), originalIndex);
+        return new BWTBytesResult(lastColumn, originalIndex);
+    }
+    
+    // Начальные позиции циклических сдвигов в отсортированном порядке
+    private static int[] sortRotations(int[] s, int upper) {
+        int n = s.length;
+        int[] doubled = new int[n * 2];
+        System.arraycopy(s, 0, doubled, 0, n);
+        System.arraycopy(s, 0, doubled, n, n);
+        int[] sa = SuffixArray.build(doubled, upper);
+        
+        int[] rotations = new int[n];
+        int k = 0;
+        for (int start : sa) {
+            if (start < n) rotations[k++] = start;
+        }
+        return rotations;
     }
     
     // Обратное преобразование BWT
@@ -54,6 +88,64 @@ public class BWTTransformer {
         return result.toString();
     }
     
+    // Обратное преобразование BWT для байтов без промежуточных объектов.
+    // C[] — начало каждого символа в первом столбце, T[] — LF-отображение:
+    // T[k] = позиция в последнем столбце k-го символа первого столбца.
+    public static byte[] inverseBWT(byte[] lastColumn, int originalIndex) {
+        int n = lastColumn.length;
+        byte[] result = new byte[n];
+        if (n == 0) return result;
+        
+        int[] c = new int[257];
+        for (byte b : lastColumn) {
+            c[(b & 0xFF) + 1]++;
+        }
+        for (int i = 1; i <= 256; i++) {
+            c[i] += c[i - 1];
+        }
+        
+        // Стабильная расстановка (counting sort) вместо сортировки компаратором
+        int[] t = new int[n];
+        for (int i = 0; i < n; i++) {
+            t[c[lastColumn[i] & 0xFF]++] = i;
+        }
+        
+        int currentIndex = originalIndex;
+        for (int i = 0; i < n; i++) {
+            currentIndex = t[currentIndex];
+            result[i] = lastColumn[currentIndex];
+        }
+        
+        return result;
+    }
+    
+    // Сравнение скорости обратного BWT: старый вариант на String против byte[]
+    public static void benchmarkInverse(byte[] data, int rounds) {
+        System.out.println("=== БЕНЧМАРК ОБРАТНОГО BWT ===");
+        System.out.printf("Размер блока: %d байт, повторов: %d%n", data.length, rounds);
+        
+        BWTBytesResult bwt = forwardBWT(data);
+        String lastColumn = new String(bwt.transformed, java.nio.charset.StandardCharsets.ISO_8859_1);
+        double megabytes = data.length * (double) rounds / (1024 * 1024);
+        
+        long start = System.nanoTime();
+        for (int r = 0; r < rounds; r++) {
+            inverseBWT(lastColumn, bwt.index);
+        }
+        double stringSeconds = (System.nanoTime() - start) / 1e9;
+        
+        start = System.nanoTime();
+        byte[] restored = null;
+        for (int r = 0; r < rounds; r++) {
+            restored = inverseBWT(bwt.transformed, bwt.index);
+        }
+        double bytesSeconds = (System.nanoTime() - start) / 1e9;
+        
+        System.out.printf("String + BWTChar: %.2f МБ/с%n", megabytes / stringSeconds);
+        System.out.printf("byte[] + LF:      %.2f МБ/с%n", megabytes / bytesSeconds);
+        System.out.printf("Обратимо: %s%n", Arrays.equals(data, restored) ? "✅" : "❌");
+    }
+    
     // Вспомогательный класс для BWT
     private static class BWTChar {
         final char ch;
@@ -65,6 +157,17 @@ public class BWTTransformer {
         }
     }
     
+    // Результат BWT преобразования для байтов
+    public static class BWTBytesResult {
+        public final byte[] transformed;
+        public final int index;
+        
+        public BWTBytesResult(byte[] transformed, int index) {
+            this.transformed = transformed;
+            this.index = index;
+        }
+    }
+    
     // Результат BWT преобразования
     public static class BWTResult {
         public final String transformed;
@@ -1,12 +1,9 @@
-import java.io.ByteArrayOutputStream;
-import java.nio.charset.StandardCharsets;
+import java.nio.CharBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.zip.GZIPOutputStream;
 
 public class Base64Comparator {
     
@@ -14,23 +11,30 @@ public class Base64Comparator {
     public static ComparisonResult compareBase64ToBase64(String originalBase64, 
                                                          String transformName,
                                                          String transformedData) {
+        return compare(baseline(originalBase64), transformName, transformedData);
+    }
+    
+    // Длина BASE64 для n байт: 4 символа на каждые начатые 3 байта
+    public static int base64Length(int bytes) {
+        return (int) Math.min(Integer.MAX_VALUE, 4L * ((bytes + 2L) / 3));
+    }
+    
+    // Эталон считается один раз на вход: размер ZIP исходного BASE64
+    public static Baseline baseline(String originalBase64) {
+        return new Baseline(originalBase64.length(), ZipCodec.DEFAULT.compressedSize(originalBase64));
+    }
+    
+    // Сжатие без сохранения результата — нужен только размер
+    public static ComparisonResult compare(Baseline baseline, String transformName, CharSequence transformedData) {
+        return compare(baseline, transformName, ZipCodec.DEFAULT.compressedSize(transformedData));
+    }
+    
+    // Сравнение по уже известному размеру ZIP кандидата (например, посчитанному потоком)
+    public static ComparisonResult compare(Baseline baseline, String transformName, int transformedZipSize) {
+        int originalSize = baseline.originalSize;
+        int originalCompressedSize = baseline.compressedSize;
+        int transformedCompressedSize = base64Length(transformedZipSize);
         
-        // 1. Исходный размер BASE64
-        int originalSize = originalBase64.length();
-        
-        // 2. Сжимаем исходный BASE64 ZIP'ом
-        byte[] originalCompressed = compressZip(originalBase64);
-        String originalCompressedBase64 = Base64.getEncoder().encodeToString(originalCompressed);
-        
-        // 3. Сжимаем преобразованные данные ZIP'ом
-        byte[] transformedCompressed = compressZip(transformedData);
-        String transformedCompressedBase64 = Base64.getEncoder().encodeToString(transformedCompressed);
-        
-        // 4. Сравниваем размеры BASE64
-        int originalCompressedSize = originalCompressedBase64.length();
-        int transformedCompressedSize = transformedCompressedBase64.length();
-        
-        // 5. Вычисляем эффективность
         double originalRatio = (double) originalCompressedSize / originalSize;
         double transformedRatio = (double) transformedCompressedSize / originalSize;
         double improvement = (1.0 - (double) transformedCompressedSize / originalCompressedSize) * 100;
@@ -53,27 +57,29 @@ public class Base64Comparator {
         FileLogger.log("=".repeat(100));
         
         List<ComparisonResult> results = new ArrayList<>();
+        Baseline baseline = baseline(originalBase64);
         
-        // Тестируем разные преобразования
-        results.add(testTransform(originalBase64, "Без преобразования", originalBase64));
+        // Тестируем разные преобразования; без преобразования размер уже
+        // известен из эталона
+        results.add(compare(baseline, "Без преобразования", baseline.zipSize));
         
         // Группировка символов
         String grouped = groupSimilar(originalBase64);
-        results.add(testTransform(originalBase64, "Группировка", grouped));
+        results.add(compare(baseline, "Группировка", grouped));
         
         // Сортировка по возрастанию
         char[] sorted = originalBase64.toCharArray();
         Arrays.sort(sorted);
-        results.add(testTransform(originalBase64, "Сортировка возр", new String(sorted)));
+        results.add(compare(baseline, "Сортировка возр", CharBuffer.wrap(sorted)));
         
         // RLE
         String rle = simpleRLE(originalBase64);
-        results.add(testTransform(originalBase64, "RLE", rle));
+        results.add(compare(baseline, "RLE", rle));
         
         // BWT
         try {
             BWTTransformer.BWTResult bwt = BWTTransformer.forwardBWT(originalBase64);
-            results.add(testTransform(originalBase64, "BWT", bwt.transformed));
+            results.add(compare(baseline, "BWT", bwt.transformed));
         } catch (Exception e) {
             FileLogger.log("BWT не удалось: " + e.getMessage());
         }
@@ -114,10 +120,6 @@ public class Base64Comparator {
         }
     }
     
-    private static ComparisonResult testTransform(String original, String name, String transformed) {
-        return compareBase64ToBase64(original, name, transformed);
-    }
-    
     private static String groupSimilar(String input) {
         // Подсчитываем частоты символов
         Map<Character, Integer> freq = new HashMap<>();
@@ -166,15 +168,17 @@ public class Base64Comparator {
         return result.toString();
     }
     
-    private static byte[] compressZip(String input) {
-        try {
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            try (GZIPOutputStream gzos = new GZIPOutputStream(baos)) {
-                gzos.write(input.getBytes(StandardCharsets.UTF_8));
-            }
-            return baos.toByteArray();
-        } catch (Exception e) {
-            return new byte[0];
+    // Эталон сравнения: длина исходного BASE64, размер его ZIP
+    // и длина этого ZIP в BASE64
+    public static class Baseline {
+        public final int originalSize;
+        public final int zipSize;
+        public final int compressedSize;
+        
+        public Baseline(int originalSize, int zipSize) {
+            this.originalSize = originalSize;
+            this.zipSize = zipSize;
+            this.compressedSize = base64Length(zipSize);
         }
     }
     
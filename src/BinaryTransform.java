@@ -0,0 +1,435 @@
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+public class BinaryTransform {
+    
+    // Тег преобразования — первый байт контейнера
+    public static final byte RAW = 0;
+    public static final byte SORT = 1;
+    public static final byte FREQ = 2;
+    public static final byte RLE = 3;
+    public static final byte CYC = 4;
+    
+    // Серии короче не окупают токен
+    private static final int MIN_RUN = 4;
+    
+    // Контейнер: тег, varint длины исходных данных, таблица преобразования,
+    // varint длины тела, тело. Кодируются оставшиеся байты input,
+    // результат готов к чтению (position = 0)
+    public static ByteBuffer encode(ByteBuffer input, byte tag) {
+        int length = input.remaining();
+        byte[] data;
+        int offset;
+        if (input.hasArray()) {
+            data = input.array();
+            offset = input.arrayOffset() + input.position();
+        } else {
+            data = new byte[length];
+            input.duplicate().get(data);
+            offset = 0;
+        }
+        input.position(input.limit());
+        
+        ByteBuffer out;
+        switch (tag) {
+            case RAW:
+                out = encodeRaw(data, offset, length);
+                break;
+            case SORT:
+                out = encodeSort(data, offset, length);
+                break;
+            case FREQ:
+                out = encodeFrequency(data, offset, length);
+                break;
+            case RLE:
+                out = encodeRunLength(data, offset, length);
+                break;
+            case CYC:
+                out = encodeCycles(data, offset, length);
+                break;
+            default:
+                throw new IllegalArgumentException("Неизвестное преобразование: " + tag);
+        }
+        return out.flip();
+    }
+    
+    public static byte[] encode(byte[] input, byte tag) {
+        return toArray(encode(ByteBuffer.wrap(input), tag));
+    }
+    
+    // Читает один контейнер из encoded и возвращает исходные байты.
+    // Размеры из заголовка сверяются с телом и таблицей до выделения
+    // памяти: испорченный контейнер — IllegalArgumentException, а не OOM
+    public static ByteBuffer decode(ByteBuffer encoded) {
+        try {
+            byte tag = encoded.get();
+            int n = VarInts.read(encoded);
+            if (n < 0) throw new IllegalArgumentException("Отрицательный размер данных: " + n);
+            switch (tag) {
+                case RAW:
+                    return ByteBuffer.wrap(decodeRaw(encoded, n));
+                case SORT:
+                    return ByteBuffer.wrap(decodeSort(encoded, n));
+                case FREQ:
+                    return ByteBuffer.wrap(decodeFrequency(encoded, n));
+                case RLE:
+                    return ByteBuffer.wrap(decodeRunLength(encoded, n));
+                case CYC:
+                    return ByteBuffer.wrap(decodeCycles(encoded, n));
+                default:
+                    throw new IllegalArgumentException("Неизвестное преобразование: " + tag);
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+            throw new IllegalArgumentException("Повреждённый контейнер преобразования", e);
+        }
+    }
+    
+    public static byte[] decode(byte[] encoded) {
+        return toArray(decode(ByteBuffer.wrap(encoded)));
+    }
+    
+    public static String name(byte tag) {
+        switch (tag) {
+            case SORT: return "Сортировка";
+            case FREQ: return "Частотная";
+            case RLE: return "RLE";
+            case CYC: return "Цикл";
+            default: return "Без преобразования";
+        }
+    }
+    
+    // 0. Без преобразования: пустая таблица, тело — сами данные
+    private static ByteBuffer encodeRaw(byte[] data, int offset, int length) {
+        ByteBuffer out = allocate(RAW, length, 0, length);
+        VarInts.write(out, length);
+        return out.put(data, offset, length);
+    }
+    
+    private static byte[] decodeRaw(ByteBuffer in, int n) {
+        int end = expectBody(in, VarInts.read(in));
+        expectSize(end - in.position(), n);
+        byte[] result = new byte[n];
+        in.get(result);
+        expectEnd(in, end, n, n);
+        return result;
+    }
+    
+    // 1. Сортировка. Тело с отсортированными байтами полностью задаётся
+    // гистограммой, поэтому в таблице — символы и их количества, а в теле —
+    // позиции каждой группы по возрастанию, разностями в varint
+    private static ByteBuffer encodeSort(byte[] data, int offset, int length) {
+        int[] counts = new int[256];
+        int[] last = new int[256];
+        int[] groupBytes = new int[256];
+        Arrays.fill(last, -1);
+        for (int i = 0; i < length; i++) {
+            int b = data[offset + i] & 0xFF;
+            counts[b]++;
+            groupBytes[b] += VarInts.size(i - last[b] - 1);
+            last[b] = i;
+        }
+        
+        int groups = 0;
+        int side = 0;
+        int body = 0;
+        for (int b = 0; b < 256; b++) {
+            if (counts[b] == 0) continue;
+            groups++;
+            side += 1 + VarInts.size(counts[b]);
+            body += groupBytes[b];
+        }
+        side += VarInts.size(groups);
+        
+        ByteBuffer out = allocate(SORT, length, side, body);
+        VarInts.write(out, groups);
+        for (int b = 0; b < 256; b++) {
+            if (counts[b] == 0) continue;
+            out.put((byte) b);
+            VarInts.write(out, counts[b]);
+        }
+        VarInts.write(out, body);
+        
+        // Каждая группа пишется в свой участок тела
+        byte[] array = out.array();
+        int[] cursor = new int[256];
+        int position = out.arrayOffset() + out.position();
+        for (int b = 0; b < 256; b++) {
+            cursor[b] = position;
+            position += groupBytes[b];
+        }
+        Arrays.fill(last, -1);
+        for (int i = 0; i < length; i++) {
+            int b = data[offset + i] & 0xFF;
+            cursor[b] = VarInts.write(array, cursor[b], i - last[b] - 1);
+            last[b] = i;
+        }
+        return out.position(out.position() + body);
+    }
+    
+    private static byte[] decodeSort(ByteBuffer in, int n) {
+        int groups = readGroups(in);
+        byte[] symbols = new byte[groups];
+        int[] counts = new int[groups];
+        long total = 0;
+        for (int g = 0; g < groups; g++) {
+            symbols[g] = in.get();
+            counts[g] = VarInts.read(in);
+            if (counts[g] < 0) throw new IllegalArgumentException("Повреждена таблица групп");
+            total += counts[g];
+        }
+        int end = expectBody(in, VarInts.read(in));
+        // Каждая позиция занимает в теле хотя бы байт
+        if (total != n || n > end - in.position()) {
+            throw new IllegalArgumentException("Размер групп не совпадает с заголовком");
+        }
+        
+        byte[] result = new byte[n];
+        int restored = 0;
+        for (int g = 0; g < groups; g++) {
+            int pos = -1;
+            for (int c = 0; c < counts[g]; c++) {
+                pos += VarInts.read(in) + 1;
+                result[pos] = symbols[g];
+            }
+            restored += counts[g];
+        }
+        expectEnd(in, end, restored, n);
+        return result;
+    }
+    
+    // 2. Частотная группировка: таблица — символы по убыванию частоты,
+    // тело — ранг каждого байта
+    private static ByteBuffer encodeFrequency(byte[] data, int offset, int length) {
+        int[] counts = new int[256];
+        for (int i = 0; i < length; i++) {
+            counts[data[offset + i] & 0xFF]++;
+        }
+        char[] symbols = TransformKernels.symbolsByFrequency(counts);
+        char[] rank = TransformKernels.rankTable(symbols, 256);
+        int groups = symbols.length;
+        
+        ByteBuffer out = allocate(FREQ, length, VarInts.size(groups) + groups, length);
+        VarInts.write(out, groups);
+        for (char symbol : symbols) {
+            out.put((byte) symbol);
+        }
+        VarInts.write(out, length);
+        for (int i = 0; i < length; i++) {
+            out.put((byte) rank[data[offset + i] & 0xFF]);
+        }
+        return out;
+    }
+    
+    private static byte[] decodeFrequency(ByteBuffer in, int n) {
+        int groups = readGroups(in);
+        byte[] symbols = new byte[256];
+        in.get(symbols, 0, groups);
+        int end = expectBody(in, VarInts.read(in));
+        expectSize(end - in.position(), n);
+        
+        byte[] result = new byte[n];
+        for (int i = 0; i < n; i++) {
+            int r = in.get() & 0xFF;
+            if (r >= groups) throw new IllegalArgumentException("Ранг вне таблицы: " + r);
+            result[i] = symbols[r];
+        }
+        expectEnd(in, end, n, n);
+        return result;
+    }
+    
+    // 3. RLE: таблицы нет, тело — токены. Токен — varint (длина << 1 | серия):
+    // у серии дальше один байт, у литерала — сами байты
+    private static ByteBuffer encodeRunLength(byte[] data, int offset, int length) {
+        int body = runLengthTokens(data, offset, length, null);
+        ByteBuffer out = allocate(RLE, length, 0, body);
+        VarInts.write(out, body);
+        runLengthTokens(data, offset, length, out);
+        return out;
+    }
+    
+    // Один проход и для подсчёта размера (out == null), и для записи
+    private static int runLengthTokens(byte[] data, int offset, int length, ByteBuffer out) {
+        int size = 0;
+        int literalStart = 0;
+        int i = 0;
+        while (i < length) {
+            byte b = data[offset + i];
+            int j = i + 1;
+            while (j < length && data[offset + j] == b) j++;
+            if (j - i >= MIN_RUN) {
+                size += literal(data, offset + literalStart, i - literalStart, out);
+                int token = (j - i) << 1 | 1;
+                size += VarInts.size(token) + 1;
+                if (out != null) {
+                    VarInts.write(out, token);
+                    out.put(b);
+                }
+                literalStart = j;
+            }
+            i = j;
+        }
+        size += literal(data, offset + literalStart, length - literalStart, out);
+        return size;
+    }
+    
+    private static int literal(byte[] data, int offset, int length, ByteBuffer out) {
+        if (length == 0) return 0;
+        int token = length << 1;
+        if (out != null) {
+            VarInts.write(out, token);
+            out.put(data, offset, length);
+        }
+        return VarInts.size(token) + length;
+    }
+    
+    private static byte[] decodeRunLength(ByteBuffer in, int n) {
+        int end = expectBody(in, VarInts.read(in));
+        // Сначала пробегаем токены без записи: сумма длин должна совпасть с n
+        ByteBuffer tokens = in.duplicate();
+        long total = 0;
+        while (tokens.position() < end) {
+            int token = VarInts.read(tokens);
+            if (token < 0) throw new IllegalArgumentException("Повреждён токен RLE");
+            total += token >>> 1;
+            tokens.position(tokens.position() + ((token & 1) != 0 ? 1 : token >>> 1));
+        }
+        expectSize(total, n);
+        byte[] result = new byte[n];
+        int pos = 0;
+        while (in.position() < end) {
+            int token = VarInts.read(in);
+            int length = token >>> 1;
+            if ((token & 1) != 0) {
+                Arrays.fill(result, pos, pos + length, in.get());
+            } else {
+                in.get(result, pos, length);
+            }
+            pos += length;
+        }
+        expectEnd(in, end, pos, n);
+        return result;
+    }
+    
+    // 4. Циклы: таблица — участки (разрыв от конца предыдущего, период,
+    // повторы), в теле от каждого участка остаётся один период
+    private static ByteBuffer encodeCycles(byte[] data, int offset, int length) {
+        List<RunFinder.Run> runs = RunFinder.selectCycles(
+            RunFinder.findRuns(data, offset, length),
+            run -> (long) run.period * (run.repeats() - 1)
+                - VarInts.size(run.start) - VarInts.size(run.period) - VarInts.size(run.repeats()));
+        
+        int side = VarInts.size(runs.size());
+        int body = length;
+        int previousEnd = 0;
+        for (RunFinder.Run run : runs) {
+            side += VarInts.size(run.start - previousEnd) + VarInts.size(run.period)
+                + VarInts.size(run.repeats());
+            body -= run.end - run.start - run.period;
+            previousEnd = run.end;
+        }
+        
+        ByteBuffer out = allocate(CYC, length, side, body);
+        VarInts.write(out, runs.size());
+        previousEnd = 0;
+        for (RunFinder.Run run : runs) {
+            VarInts.write(out, run.start - previousEnd);
+            VarInts.write(out, run.period);
+            VarInts.write(out, run.repeats());
+            previousEnd = run.end;
+        }
+        VarInts.write(out, body);
+        int pos = 0;
+        for (RunFinder.Run run : runs) {
+            out.put(data, offset + pos, run.start + run.period - pos);
+            pos = run.end;
+        }
+        return out.put(data, offset + pos, length - pos);
+    }
+    
+    private static byte[] decodeCycles(ByteBuffer in, int n) {
+        int count = VarInts.read(in);
+        // Каждое значение таблицы занимает хотя бы байт
+        if (count < 0 || count > n || count * 3L > in.remaining()) {
+            throw new IllegalArgumentException("Повреждена таблица участков: " + count);
+        }
+        int[] runs = new int[count * 3];
+        long unrolled = 0;
+        for (int i = 0; i < runs.length; i += 3) {
+            for (int j = 0; j < 3; j++) {
+                runs[i + j] = VarInts.read(in);
+                if (runs[i + j] < 0) throw new IllegalArgumentException("Повреждена таблица участков");
+            }
+            if (runs[i + 1] == 0 || runs[i + 2] == 0) throw new IllegalArgumentException("Пустой участок");
+            unrolled += (long) runs[i + 1] * (runs[i + 2] - 1);
+        }
+        int end = expectBody(in, VarInts.read(in));
+        // В теле от участка остаётся один период, остальное — повторы
+        expectSize(end - in.position() + unrolled, n);
+        
+        byte[] result = new byte[n];
+        int pos = 0;
+        for (int r = 0; r < count; r++) {
+            int gap = runs[r * 3];
+            int period = runs[r * 3 + 1];
+            int repeats = runs[r * 3 + 2];
+            in.get(result, pos, gap + period);
+            pos += gap + period;
+            // Разворачиваем период, удваивая уже скопированную часть
+            int total = period * repeats;
+            int copied = period;
+            int start = pos - period;
+            while (copied < total) {
+                int chunk = Math.min(copied, total - copied);
+                System.arraycopy(result, start, result, start + copied, chunk);
+                copied += chunk;
+            }
+            pos = start + total;
+        }
+        in.get(result, pos, n - pos);
+        expectEnd(in, end, n, n);
+        return result;
+    }
+    
+    private static ByteBuffer allocate(byte tag, int n, int side, int body) {
+        ByteBuffer out = ByteBuffer.allocate(1 + VarInts.size(n) + side + VarInts.size(body) + body);
+        out.put(tag);
+        VarInts.write(out, n);
+        return out;
+    }
+    
+    // Проверяет, что тело целиком лежит в буфере; возвращает позицию его конца
+    private static int expectBody(ByteBuffer in, int bodyLength) {
+        if (bodyLength < 0 || bodyLength > in.remaining()) {
+            throw new IllegalArgumentException("Тело контейнера обрезано");
+        }
+        return in.position() + bodyLength;
+    }
+    
+    private static void expectSize(long produced, int n) {
+        if (produced != n) throw new IllegalArgumentException("Размер тела не совпадает с заголовком");
+    }
+    
+    private static int readGroups(ByteBuffer in) {
+        int groups = VarInts.read(in);
+        if (groups < 0 || groups > 256) throw new IllegalArgumentException("Повреждена таблица групп: " + groups);
+        return groups;
+    }
+    
+    private static void expectEnd(ByteBuffer in, int end, int restored, int n) {
+        if (in.position() != end || restored != n) {
+            throw new IllegalArgumentException("Размер тела не совпадает с заголовком");
+        }
+    }
+    
+    private static byte[] toArray(ByteBuffer buffer) {
+        if (buffer.hasArray() && buffer.arrayOffset() == 0 && buffer.position() == 0
+                && buffer.remaining() == buffer.array().length) {
+            return buffer.array();
+        }
+        byte[] result = new byte[buffer.remaining()];
+        buffer.get(result);
+        return result;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,198 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class BlockBWT {
+    
+    // Размер блока как в bzip2 (-9)
+    public static final int DEFAULT_BLOCK_SIZE = 900 * 1024;
+    
+    // Обратимая стадия после BWT (например, MTF)
+    public interface BlockStage {
+        byte[] encode(byte[] block);
+        byte[] decode(byte[] block);
+    }
+    
+    // Блочное сжатие с настройками по умолчанию
+    public static BlockContainer encode(byte[] input) {
+        return encode(input, DEFAULT_BLOCK_SIZE, Collections.emptyList(), ForkJoinPool.commonPool());
+    }
+    
+    // Делим вход на блоки и обрабатываем каждый блок параллельно:
+    // BWT, затем стадии в заданном порядке
+    public static BlockContainer encode(byte[] input, int blockSize,
+                                        List<BlockStage> stages, ForkJoinPool pool) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Размер блока должен быть положительным: " + blockSize);
+        }
+        int blockCount = (input.length + blockSize - 1) / blockSize;
+        EncodedBlock[] blocks = new EncodedBlock[blockCount];
+        
+        pool.invoke(new BlockTask(0, blockCount, i -> {
+            int from = i * blockSize;
+            int to = Math.min(from + blockSize, input.length);
+            byte[] block = Arrays.copyOfRange(input, from, to);
+            
+            BWTTransformer.BWTBytesResult bwt = BWTTransformer.forwardBWT(block);
+            byte[] data = bwt.transformed;
+            for (BlockStage stage : stages) {
+                data = stage.encode(data);
+            }
+            blocks[i] = new EncodedBlock(data, bwt.index, block.length);
+        }));
+        
+        return new BlockContainer(input.length, blockSize, Arrays.asList(blocks));
+    }
+    
+    public static byte[] decode(BlockContainer container) {
+        return decode(container, Collections.emptyList(), ForkJoinPool.commonPool());
+    }
+    
+    // Блоки независимы, поэтому распаковываются тоже параллельно
+    public static byte[] decode(BlockContainer container, List<BlockStage> stages, ForkJoinPool pool) {
+        byte[] output = new byte[container.originalSize];
+        List<EncodedBlock> blocks = container.blocks;
+        
+        pool.invoke(new BlockTask(0, blocks.size(), i -> {
+            EncodedBlock block = blocks.get(i);
+            byte[] data = block.data;
+            for (int s = stages.size() - 1; s >= 0; s--) {
+                data = stages.get(s).decode(data);
+            }
+            // Стадии могли вернуть что угодно: длину и индекс сверяем с заголовком
+            if (data.length != block.originalLength) {
+                throw new IllegalArgumentException("Блок " + i + ": длина " + data.length
+                        + " вместо " + block.originalLength);
+            }
+            if (block.bwtIndex < 0 || block.bwtIndex >= data.length) {
+                throw new IllegalArgumentException("Блок " + i + ": неверный BWT-индекс " + block.bwtIndex);
+            }
+            byte[] restored = BWTTransformer.inverseBWT(data, block.bwtIndex);
+            if (restored.length != block.originalLength) {
+                throw new IllegalArgumentException("Блок " + i + ": восстановлено " + restored.length
+                        + " байт вместо " + block.originalLength);
+            }
+            System.arraycopy(restored, 0, output, i * container.blockSize, restored.length);
+        }));
+        
+        return output;
+    }
+    
+    // Рекурсивно делим диапазон блоков пополам, лист — один блок
+    private static class BlockTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        
+        private final int from;
+        private final int to;
+        private final BlockWork work;
+        
+        BlockTask(int from, int to, BlockWork work) {
+            this.from = from;
+            this.to = to;
+            this.work = work;
+        }
+        
+        @Override
+        protected void compute() {
+            if (to - from <= 1) {
+                if (to > from) work.process(from);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new BlockTask(from, mid, work), new BlockTask(mid, to, work));
+        }
+    }
+    
+    private interface BlockWork {
+        void process(int blockIndex);
+    }
+    
+    // Упорядоченный контейнер блоков
+    public static class BlockContainer {
+        public final int originalSize;
+        public final int blockSize;
+        public final List<EncodedBlock> blocks;
+        
+        public BlockContainer(int originalSize, int blockSize, List<EncodedBlock> blocks) {
+            this.originalSize = originalSize;
+            this.blockSize = blockSize;
+            this.blocks = blocks;
+        }
+        
+        // Формат: размер исходника, размер блока, число блоков,
+        // затем для каждого блока: BWT-индекс, длина данных, данные
+        public byte[] toBytes() {
+            try {
+                ByteArrayOutputStream baos = new ByteArrayOutputStream();
+                DataOutputStream out = new DataOutputStream(baos);
+                out.writeInt(originalSize);
+                out.writeInt(blockSize);
+                out.writeInt(blocks.size());
+                for (EncodedBlock block : blocks) {
+                    out.writeInt(block.bwtIndex);
+                    out.writeInt(block.data.length);
+                    out.write(block.data);
+                }
+                out.flush();
+                return baos.toByteArray();
+            } catch (IOException e) {
+                throw new IllegalStateException("Не удалось сериализовать блоки", e);
+            }
+        }
+        
+        public static BlockContainer fromBytes(byte[] bytes) {
+            try {
+                DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+                int originalSize = in.readInt();
+                int blockSize = in.readInt();
+                int count = in.readInt();
+                // Всё прочитанное проверяем до выделения памяти
+                if (originalSize < 0) throw new IllegalArgumentException("Неверный размер исходника: " + originalSize);
+                if (blockSize <= 0) throw new IllegalArgumentException("Неверный размер блока: " + blockSize);
+                long expected = ((long) originalSize + blockSize - 1) / blockSize;
+                if (count != expected) {
+                    throw new IllegalArgumentException("Число блоков " + count + " вместо " + expected);
+                }
+                List<EncodedBlock> blocks = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    int index = in.readInt();
+                    int size = in.readInt();
+                    if (size < 0 || size > in.available()) {
+                        throw new IllegalArgumentException("Блок " + i + ": длина данных вне контейнера: " + size);
+                    }
+                    int length = (int) Math.min(blockSize, originalSize - (long) i * blockSize);
+                    if (index < 0 || index >= length) {
+                        throw new IllegalArgumentException("Блок " + i + ": неверный BWT-индекс " + index);
+                    }
+                    byte[] data = new byte[size];
+                    in.readFully(data);
+                    blocks.add(new EncodedBlock(data, index, length));
+                }
+                return new BlockContainer(originalSize, blockSize, blocks);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Повреждённый блочный контейнер", e);
+            }
+        }
+    }
+    
+    // Один закодированный блок
+    public static class EncodedBlock {
+        public final byte[] data;
+        public final int bwtIndex;
+        public final int originalLength;
+        
+        public EncodedBlock(byte[] data, int bwtIndex, int originalLength) {
+            this.data = data;
+            this.bwtIndex = bwtIndex;
+            this.originalLength = originalLength;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,81 @@
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+
+public class CompressedSizeEstimator {
+    
+    // Заголовок и хвост GZIP
+    public static final int GZIP_OVERHEAD = 18;
+    
+    // Сколько байт данных сжимаем для оценки
+    static final int SAMPLE_SIZE = 64 * 1024;
+    static final int SAMPLE_CHUNKS = 8;
+    
+    // Оценка по выборке неточна: кандидат отбрасывается,
+    // только если проигрывает с этим запасом
+    public static final double PRUNE_MARGIN = 0.10;
+    
+    // Быстрая оценка размера после GZIP: Deflate с тем же уровнем, что и у
+    // GZIPOutputStream, но только на выборке не больше SAMPLE_SIZE байт.
+    // Размер сжатия моделируется как a + b * длина: по половине и по всей
+    // выборке получаем постоянную часть a и цену байта b, затем
+    // экстраполируем на полный размер
+    public static int estimate(byte[] data) {
+        int n = data.length;
+        if (n == 0) return GZIP_OVERHEAD + 2;
+        
+        // Deflater из пула кодека: уровень совпадает с обычным сжатием
+        Deflater deflater = ZipCodec.DEFAULT.pooledDeflater();
+        byte[] out = new byte[8 * 1024];
+        
+        if (n <= SAMPLE_SIZE) {
+            // Маленькие данные оцениваем целиком
+            deflater.setInput(data, 0, n);
+            deflater.finish();
+            long compressed = 0;
+            while (!deflater.finished()) {
+                compressed += deflater.deflate(out);
+            }
+            return (int) compressed + GZIP_OVERHEAD;
+        }
+        
+        // Равномерно разбросанные куски, чтобы захватить разные участки
+        int chunk = SAMPLE_SIZE / SAMPLE_CHUNKS;
+        long step = (n - chunk) / (SAMPLE_CHUNKS - 1);
+        long compressed = 0;
+        long half = 0;
+        for (int i = 0; i < SAMPLE_CHUNKS; i++) {
+            deflater.setInput(data, (int) (i * step), chunk);
+            while (!deflater.needsInput()) {
+                compressed += deflater.deflate(out, 0, out.length, Deflater.NO_FLUSH);
+            }
+            if (i == SAMPLE_CHUNKS / 2 - 1) {
+                // Сбрасываем буфер, чтобы узнать размер первой половины
+                int written;
+                do {
+                    written = deflater.deflate(out, 0, out.length, Deflater.SYNC_FLUSH);
+                    compressed += written;
+                } while (written == out.length);
+                half = compressed;
+            }
+        }
+        deflater.finish();
+        while (!deflater.finished()) {
+            compressed += deflater.deflate(out);
+        }
+        
+        long halfLength = (long) chunk * (SAMPLE_CHUNKS / 2);
+        long fullLength = (long) chunk * SAMPLE_CHUNKS;
+        double perByte = Math.max(0.0, (double) (compressed - half) / (fullLength - halfLength));
+        double fixed = Math.max(0.0, compressed - perByte * fullLength);
+        return (int) Math.min(Integer.MAX_VALUE, fixed + perByte * n + GZIP_OVERHEAD);
+    }
+    
+    public static int estimate(String data) {
+        return estimate(data.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    // Может ли кандидат с такой оценкой обогнать лучший известный размер
+    public static boolean canWin(int estimate, int bestSize) {
+        return estimate * (1.0 - PRUNE_MARGIN) <= bestSize;
+    }
+}
\ No newline at end of file
@@ -1,44 +1,69 @@
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
-import java.util.zip.GZIPOutputStream;
+import java.util.zip.GZIPInputStream;
 
 public class CompressionChain {
     
     // Автоматический выбор лучшего преобразования
     public static String autoTransform(String input) {
-        // Анализируем данные
-        DataAnalysis analysis = analyzeData(input);
-        
-        // Выбираем лучшее преобразование
+        switch (selectTransform(DataProfiler.profile(input))) {
+            case BinaryTransform.RLE:
+                return SelfDescribingTransform.embedTransform(input, "RUN_LENGTH_EMBEDDED");
+            case BinaryTransform.FREQ:
+                return SelfDescribingTransform.embedTransform(input, "FREQ_GROUP_EMBEDDED");
+            case BinaryTransform.SORT:
+                return SelfDescribingTransform.embedTransform(input, "SORT_EMBEDDED");
+            default:
+                return SelfDescribingTransform.embedTransform(input, "PATTERN_CYCLE_EMBEDDED");
+        }
+    }
+    
+    // Выбор преобразования по профилю данных
+    public static byte selectTransform(DataProfiler.DataProfile analysis) {
         if (analysis.longestRun >= 4) {
-            return SelfDescribingTransform.embedTransform(input, "RUN_LENGTH_EMBEDDED");
+            return BinaryTransform.RLE;
         } else if (analysis.uniqueChars <= 16) {
-            return SelfDescribingTransform.embedTransform(input, "FREQ_GROUP_EMBEDDED");
+            return BinaryTransform.FREQ;
         } else if (analysis.entropy < 4.0) {
-            return SelfDescribingTransform.embedTransform(input, "SORT_EMBEDDED");
+            return BinaryTransform.SORT;
         } else {
-            return SelfDescribingTransform.embedTransform(input, "PATTERN_CYCLE_EMBEDDED");
+            return BinaryTransform.CYC;
         }
     }
     
+    // Заголовок бинарной цепочки: "PMCH", версия, число циклов (varint).
+    // Каждый цикл — GZIP от контейнера BinaryTransform, тег внутри него
+    private static final byte[] CHAIN_MAGIC = {'P', 'M', 'C', 'H'};
+    private static final int CHAIN_VERSION = 3;
+    
     // Циклическое сжатие с умной остановкой
     public static ChainResult compressChain(String input, int maxCycles) {
+        return compressChain(input.getBytes(StandardCharsets.UTF_8), maxCycles);
+    }
+    
+    // Цепочка над байтами: выход ZIP одного цикла идёт на вход следующего
+    // без перекодирования через кодировку платформы, преобразования
+    // работают с байтами через бинарный контейнер BinaryTransform
+    public static ChainResult compressChain(byte[] input, int maxCycles) {
         List<String> transformHistory = new ArrayList<>();
         List<Integer> sizeHistory = new ArrayList<>();
         List<Double> ratioHistory = new ArrayList<>();
         
-        String current = input;
+        byte[] current = input;
         int cycle = 0;
+        int cycles = 0;
         int bestSize = Integer.MAX_VALUE;
-        String bestData = current;
+        byte[] bestData = current;
         
         System.out.println("=== УМНАЯ ЦЕПОЧКА СЖАТИЯ ===");
-        System.out.printf("Начальный размер: %d символов%n", input.length());
+        System.out.printf("Начальный размер: %d байт%n", input.length);
         System.out.println();
         
         while (cycle < maxCycles) {
@@ -46,13 +71,23 @@ public class CompressionChain {
             System.out.printf("Цикл %d:%n", cycle);
             
             // Применяем преобразование
-            String transformed = autoTransform(current);
-            String transformName = getTransformName(transformed);
+            byte tag = selectTransform(DataProfiler.profile(current));
+            byte[] payload = BinaryTransform.encode(current, tag);
+            String transformName = BinaryTransform.name(tag);
+            
+            // Дешёвая оценка: заведомо проигрышный цикл не сжимаем целиком
+            int estimate = CompressedSizeEstimator.estimate(payload);
+            if (!CompressedSizeEstimator.canWin(estimate, bestSize)) {
+                System.out.printf("  Преобразование: %s%n", transformName);
+                System.out.printf("  Оценка после ZIP: ~%d байт%n", estimate);
+                System.out.printf("  ⚠️ Нет улучшения, останавливаемся.%n");
+                break;
+            }
             
             // Сжимаем ZIP
-            byte[] compressed = compressZip(transformed);
+            byte[] compressed = ZipCodec.DEFAULT.compress(payload);
             int size = compressed.length;
-            double ratio = (double) size / current.length();
+            double ratio = (double) size / current.length;
             
             // Сохраняем историю
             transformHistory.add(transformName);
@@ -65,93 +100,89 @@ public class CompressionChain {
             // Проверяем улучшение
             if (size < bestSize) {
                 bestSize = size;
-                bestData = new String(compressed);
+                bestData = compressed;
+                cycles++;
                 System.out.printf("  ✅ УЛУЧШЕНИЕ!%n");
             } else {
                 System.out.printf("  ⚠️ Нет улучшения, останавливаемся.%n");
                 break;
             }
             
-            // Для следующего цикла используем сжатую строку как вход
-            current = new String(compressed);
+            // Для следующего цикла используем сжатые байты как вход
+            current = compressed;
         }
         
         System.out.println();
         System.out.println("=".repeat(50));
         System.out.printf("Лучший размер: %d байт%n", bestSize);
         System.out.printf("Коэффициент сжатия: %.3f%n", 
-            (double) bestSize / input.length());
+            (double) bestSize / input.length);
         System.out.println("История преобразований: " + transformHistory);
         
-        return new ChainResult(bestData.getBytes(), transformHistory, 
-                              sizeHistory, ratioHistory, input.length());
+        return new ChainResult(writeChain(cycles, bestData), transformHistory, 
+                              sizeHistory, ratioHistory, input.length);
     }
     
-    // Анализ данных
-    private static DataAnalysis analyzeData(String input) {
-        DataAnalysis result = new DataAnalysis();
-        
-        // Уникальные символы
-        Set<Character> unique = new HashSet<>();
-        for (char c : input.toCharArray()) unique.add(c);
-        result.uniqueChars = unique.size();
+    // Восстановление исходных байт из ChainResult.data
+    public static byte[] decompressChain(byte[] data) {
+        ByteBuffer in = ByteBuffer.wrap(data);
+        int cycles = readChainHeader(in);
+        byte[] current = new byte[in.remaining()];
+        in.get(current);
         
-        // Самый длинный повтор
-        int maxRun = 0;
-        int currentRun = 1;
-        for (int i = 1; i < input.length(); i++) {
-            if (input.charAt(i) == input.charAt(i-1)) {
-                currentRun++;
-                maxRun = Math.max(maxRun, currentRun);
-            } else {
-                currentRun = 1;
-            }
-        }
-        result.longestRun = maxRun;
-        
-        // Энтропия (упрощенная)
-        Map<Character, Integer> freq = new HashMap<>();
-        for (char c : input.toCharArray()) {
-            freq.put(c, freq.getOrDefault(c, 0) + 1);
+        // Циклы снимаются в обратном порядке
+        for (int i = 0; i < cycles; i++) {
+            current = BinaryTransform.decode(ZipCodec.decompress(current));
         }
-        
-        double entropy = 0.0;
-        for (int count : freq.values()) {
-            double p = (double) count / input.length();
-            entropy -= p * Math.log(p) / Math.log(2);
-        }
-        result.entropy = entropy;
-        
-        return result;
+        return current;
     }
     
-    private static String getTransformName(String transformed) {
-        if (transformed.startsWith("SORT|")) return "Сортировка";
-        if (transformed.startsWith("FREQ|")) return "Частотная";
-        if (transformed.startsWith("RLE|")) return "RLE";
-        if (transformed.startsWith("CYC|")) return "Цикл";
-        return "Без преобразования";
+    // Потоковое восстановление: промежуточные циклы — это сжатые данные,
+    // они небольшие и снимаются в памяти, а последний цикл распаковывается
+    // прямо в out, не собирая исходные данные целиком
+    public static void decompressChain(InputStream in, OutputStream out) throws IOException {
+        ByteBuffer data = ByteBuffer.wrap(in.readAllBytes());
+        int cycles = readChainHeader(data);
+        byte[] current = new byte[data.remaining()];
+        data.get(current);
+        if (cycles == 0) {
+            out.write(current);
+            return;
+        }
+        for (int i = 1; i < cycles; i++) {
+            current = BinaryTransform.decode(ZipCodec.decompress(current));
+        }
+        try (InputStream last = new BufferedInputStream(
+                new GZIPInputStream(new ByteArrayInputStream(current)))) {
+            TransformStreamDecoder.decode(last, out);
+        }
     }
     
-    private static byte[] compressZip(String input) {
-        try {
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            try (GZIPOutputStream gzos = new GZIPOutputStream(baos)) {
-                gzos.write(input.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+    private static int readChainHeader(ByteBuffer in) {
+        for (byte b : CHAIN_MAGIC) {
+            if (!in.hasRemaining() || in.get() != b) {
+                throw new IllegalArgumentException("Это не бинарная цепочка сжатия");
             }
-            return baos.toByteArray();
-        } catch (Exception e) {
-            return new byte[0];
         }
+        int version = in.get();
+        if (version != CHAIN_VERSION) {
+            throw new IllegalArgumentException("Неизвестная версия цепочки: " + version);
+        }
+        return VarInts.read(in);
     }
     
-    // Классы для результатов
-    public static class DataAnalysis {
-        int uniqueChars;
-        int longestRun;
-        double entropy;
+    // Заголовок в несколько байт копируется вместе с итоговым GZIP:
+    // ChainResult.data — один массив, а GZIP последнего цикла невелик
+    private static byte[] writeChain(int cycles, byte[] payload) {
+        ByteBuffer out = ByteBuffer.allocate(CHAIN_MAGIC.length + 1 + VarInts.size(cycles) + payload.length);
+        out.put(CHAIN_MAGIC);
+        out.put((byte) CHAIN_VERSION);
+        VarInts.write(out, cycles);
+        out.put(payload);
+        return out.array();
     }
     
+    // Классы для результатов
     public static class ChainResult {
         public final byte[] data;
         public final List<String> transforms;
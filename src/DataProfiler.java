@@ -0,0 +1,151 @@
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class DataProfiler {
+    
+    private static final String BASE64_ALPHABET =
+        "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/=";
+    private static final boolean[] IS_BASE64 = new boolean[128];
+    
+    static {
+        for (int i = 0; i < BASE64_ALPHABET.length(); i++) {
+            IS_BASE64[BASE64_ALPHABET.charAt(i)] = true;
+        }
+    }
+    
+    // Один проход по строке: гистограмма, серии, печатные символы и BASE64.
+    // Символы 0..255 считаются в int[256], таблица на 65536 заводится
+    // только при первом символе выше 255
+    public static DataProfile profile(CharSequence data) {
+        int n = data.length();
+        int[] counts = new int[256];
+        int[] wide = null;
+        int printable = 0;
+        boolean base64 = true;
+        int longestRun = 0;
+        char runChar = 0;
+        int run = 0;
+        char prev = 0;
+        
+        for (int i = 0; i < n; i++) {
+            char c = data.charAt(i);
+            if (c < 256) {
+                counts[c]++;
+            } else {
+                if (wide == null) wide = new int[Character.MAX_VALUE + 1];
+                wide[c]++;
+            }
+            if (c >= 32 && c <= 126) printable++;
+            if (base64 && (c >= 128 || !IS_BASE64[c])) base64 = false;
+            
+            run = (i > 0 && c == prev) ? run + 1 : 1;
+            if (run > longestRun) {
+                longestRun = run;
+                runChar = c;
+            }
+            prev = c;
+        }
+        
+        if (wide != null) {
+            System.arraycopy(counts, 0, wide, 0, 256);
+            counts = wide;
+        }
+        return new DataProfile(n, counts, longestRun, runChar, printable, base64);
+    }
+    
+    // Байты профилируются как символы 0..255 (ISO-8859-1)
+    public static DataProfile profile(byte[] data) {
+        int n = data.length;
+        int[] counts = new int[256];
+        int printable = 0;
+        boolean base64 = true;
+        int longestRun = 0;
+        int runByte = 0;
+        int run = 0;
+        int prev = -1;
+        
+        for (int i = 0; i < n; i++) {
+            int b = data[i] & 0xFF;
+            counts[b]++;
+            if (b >= 32 && b <= 126) printable++;
+            if (base64 && (b >= 128 || !IS_BASE64[b])) base64 = false;
+            
+            run = (b == prev) ? run + 1 : 1;
+            if (run > longestRun) {
+                longestRun = run;
+                runByte = b;
+            }
+            prev = b;
+        }
+        return new DataProfile(n, counts, longestRun, (char) runByte, printable, base64);
+    }
+    
+    // Неизменяемый профиль данных; гистограмма наружу не отдаётся
+    public static final class DataProfile {
+        public final int length;
+        public final int uniqueChars;
+        public final int longestRun;
+        public final char longestRunChar;
+        public final double entropy;
+        public final double printableRatio;
+        public final boolean base64;
+        public final char mostCommonChar;
+        
+        private final int[] counts;
+        
+        private DataProfile(int length, int[] counts, int longestRun, char longestRunChar,
+                            int printable, boolean base64) {
+            this.length = length;
+            this.counts = counts;
+            this.longestRun = longestRun;
+            this.longestRunChar = longestRunChar;
+            this.printableRatio = length == 0 ? 0.0 : (double) printable / length;
+            this.base64 = base64;
+            
+            // Уникальные символы, энтропия и самый частый — по гистограмме
+            int unique = 0;
+            int best = 0;
+            double entropy = 0.0;
+            for (int c = 0; c < counts.length; c++) {
+                int count = counts[c];
+                if (count == 0) continue;
+                unique++;
+                if (count > counts[best]) best = c;
+                double p = (double) count / length;
+                entropy -= p * Math.log(p) / Math.log(2);
+            }
+            this.uniqueChars = unique;
+            this.entropy = entropy;
+            this.mostCommonChar = (char) best;
+        }
+        
+        public int count(char c) {
+            return c < counts.length ? counts[c] : 0;
+        }
+        
+        public double ratio(char c) {
+            return length == 0 ? 0.0 : (double) count(c) / length;
+        }
+        
+        // Символы по убыванию частоты (при равенстве — по коду)
+        public List<Map.Entry<Character, Integer>> sortedByFrequency() {
+            char[] symbols = TransformKernels.symbolsByFrequency(counts);
+            List<Map.Entry<Character, Integer>> result = new ArrayList<>(symbols.length);
+            for (char c : symbols) {
+                result.add(Map.entry(c, counts[c]));
+            }
+            return result;
+        }
+        
+        // Частоты в виде карты для старого кода анализа
+        public Map<Character, Integer> frequencyMap() {
+            Map<Character, Integer> freq = new LinkedHashMap<>();
+            for (Map.Entry<Character, Integer> entry : sortedByFrequency()) {
+                freq.put(entry.getKey(), entry.getValue());
+            }
+            return freq;
+        }
+    }
+}
\ No newline at end of file
@@ -1,4 +1,3 @@
-import java.io.ByteArrayOutputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -6,10 +5,13 @@ import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.zip.GZIPOutputStream;
 
 public class DigitalGeologyCompressor {
     
+    // Повторы длиннее окна n-грамм 2..10 ищутся отдельно
+    private static final int LONG_REPEAT_LENGTH = 11;
+    private static final int MAX_LONG_REPEATS = 32;
+    
     // Основной метод сжатия с обнаружением паттернов
     public static CompressionResult compressWithPatternDetection(byte[] data) {
         System.out.println("=== ЦИФРОВАЯ ГЕОЛОГИЯ: АНАЛИЗ ПАТТЕРНОВ ===");
@@ -31,7 +33,7 @@ public class DigitalGeologyCompressor {
         String transformed = applyTransform(dataString, bestTransform);
         
         // Сжимаем
-        byte[] compressed = compressZip(transformed);
+        byte[] compressed = ZipCodec.DEFAULT.compress(transformed);
         
         // Кодируем в BASE64 для сравнения
         String base64Original = Base64.getEncoder().encodeToString(data);
@@ -53,28 +55,27 @@ public class DigitalGeologyCompressor {
     
     // Анализ паттернов в данных
     public static PatternAnalysis analyzePatterns(String data) {
+        return analyzePatterns(data, DataProfiler.profile(data));
+    }
+    
+    // Анализ по готовому профилю: частоты, энтропия и тип берутся из него
+    public static PatternAnalysis analyzePatterns(String data, DataProfiler.DataProfile profile) {
         PatternAnalysis analysis = new PatternAnalysis();
+        analysis.profile = profile;
+        analysis.totalChars = profile.length;
         
-        // 1. Анализ частот символов
-        Map<Character, Integer> freq = new HashMap<>();
-        for (char c : data.toCharArray()) {
-            freq.put(c, freq.getOrDefault(c, 0) + 1);
-        }
-        analysis.charFrequency = freq;
-        
-        // 2. Самые частые символы
-        List<Map.Entry<Character, Integer>> sortedFreq = new ArrayList<>(freq.entrySet());
-        sortedFreq.sort((a, b) -> b.getValue().compareTo(a.getValue()));
-        analysis.mostCommonChars = sortedFreq;
+        // 1. Самые частые символы
+        analysis.mostCommonChars = profile.sortedByFrequency();
+        analysis.charFrequency = profile.frequencyMap();
         
-        // 3. Поиск повторяющихся последовательностей
+        // 2. Поиск повторяющихся последовательностей
         analysis.repetitionPatterns = findRepetitions(data);
         
-        // 4. Энтропия
-        analysis.entropy = calculateEntropy(freq, data.length());
+        // 3. Энтропия
+        analysis.entropy = profile.entropy;
         
-        // 5. Определяем тип данных
-        analysis.dataType = determineDataType(data, freq);
+        // 4. Определяем тип данных
+        analysis.dataType = determineDataType(profile);
         
         return analysis;
     }
@@ -83,20 +84,18 @@ public class DigitalGeologyCompressor {
     private static List<RepetitionPattern> findRepetitions(String data) {
         List<RepetitionPattern> patterns = new ArrayList<>();
         
-        for (int patternLength = 2; patternLength <= 10; patternLength++) {
-            Map<String, Integer> patternCounts = new HashMap<>();
-            
-            for (int i = 0; i <= data.length() - patternLength; i++) {
-                String pattern = data.substring(i, i + patternLength);
-                patternCounts.put(pattern, patternCounts.getOrDefault(pattern, 0) + 1);
-            }
-            
-            // Ищем паттерны, которые повторяются минимум 3 раза
-            for (Map.Entry<String, Integer> entry : patternCounts.entrySet()) {
-                if (entry.getValue() >= 3) {
-                    patterns.add(new RepetitionPattern(entry.getKey(), entry.getValue()));
-                }
-            }
+        // Ищем паттерны длиной 2..10, которые повторяются минимум 3 раза;
+        // строки создаются только для найденных паттернов
+        NGramCounter.countRepeats(data, 2, 10, 3, (length, position, count) ->
+            patterns.add(new RepetitionPattern(data.substring(position, position + length), count)));
+        
+        // Длинные повторы любой длины — через суффиксный массив,
+        // в анализ берём самые выгодные по покрытию
+        List<RepeatMiner.Repeat> longRepeats = RepeatMiner.maximalRepeats(data, LONG_REPEAT_LENGTH, 3);
+        longRepeats.sort((a, b) -> Long.compare(b.coverage(), a.coverage()));
+        for (int i = 0; i < Math.min(MAX_LONG_REPEATS, longRepeats.size()); i++) {
+            RepeatMiner.Repeat repeat = longRepeats.get(i);
+            patterns.add(new RepetitionPattern(repeat.getPattern(), repeat.count));
         }
         
         // Сортируем по частоте и длине
@@ -117,7 +116,7 @@ public class DigitalGeologyCompressor {
             if (analysis.entropy > 4.5) {
                 return "GROUP_BY_FREQUENCY"; // Для случайных BASE64
             } else if (analysis.repetitionPatterns.size() > 0) {
-                return "PATTERN_COMPRESSION"; // Есть повторяющиеся паттерны
+                return "REPAIR_GRAMMAR"; // Есть повторяющиеся паттерны
             } else {
                 return "BWT"; // Для структурированных данных
             }
@@ -152,6 +151,8 @@ public class DigitalGeologyCompressor {
                 }
             case "RLE":
                 return runLengthEncode(data);
+            case "REPAIR_GRAMMAR":
+                return RePair.encode(data);
             default:
                 return data;
         }
@@ -204,55 +205,19 @@ public class DigitalGeologyCompressor {
         return result.toString();
     }
     
-    // Расчёт энтропии
-    private static double calculateEntropy(Map<Character, Integer> freq, int total) {
-        double entropy = 0.0;
-        for (int count : freq.values()) {
-            double p = (double) count / total;
-            entropy -= p * Math.log(p) / Math.log(2);
-        }
-        return entropy;
-    }
-    
     // Определение типа данных
-    private static DataType determineDataType(String data, Map<Character, Integer> freq) {
+    private static DataType determineDataType(DataProfiler.DataProfile profile) {
         // Проверяем BASE64
-        String base64Chars = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/=";
-        boolean isBase64 = true;
-        for (char c : data.toCharArray()) {
-            if (base64Chars.indexOf(c) == -1) {
-                isBase64 = false;
-                break;
-            }
-        }
-        
-        if (isBase64) return DataType.BASE64;
+        if (profile.base64) return DataType.BASE64;
         
         // Проверяем текст (печатные символы)
-        int printable = 0;
-        for (char c : data.toCharArray()) {
-            if (c >= 32 && c <= 126) printable++;
-        }
-        
-        if ((double) printable / data.length() > 0.9) {
+        if (profile.printableRatio > 0.9) {
             return DataType.TEXT;
         }
         
         return DataType.BINARY;
     }
     
-    private static byte[] compressZip(String data) {
-        try {
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            try (GZIPOutputStream gzos = new GZIPOutputStream(baos)) {
-                gzos.write(data.getBytes(StandardCharsets.UTF_8));
-            }
-            return baos.toByteArray();
-        } catch (Exception e) {
-            return data.getBytes(StandardCharsets.UTF_8);
-        }
-    }
-    
     // Класс для хранения результатов
     public static class CompressionResult {
         public final byte[] compressedData;
@@ -275,6 +240,7 @@ public class DigitalGeologyCompressor {
         double entropy;
         DataType dataType;
         int totalChars;
+        DataProfiler.DataProfile profile;
         public PatternAnalysis() {
             this.totalChars = 0;
         }
@@ -293,8 +259,11 @@ public class DigitalGeologyCompressor {
                 System.out.println("Обнаружены повторяющиеся паттерны:");
                 for (int i = 0; i < Math.min(3, repetitionPatterns.size()); i++) {
                     RepetitionPattern p = repetitionPatterns.get(i);
+                    String shown = p.pattern.length() > 40
+                        ? p.pattern.substring(0, 40) + "... (" + p.pattern.length() + " симв.)"
+                        : p.pattern;
                     System.out.printf("  \"%s\" - повторяется %d раз%n", 
-                        p.pattern, p.count);
+                        shown, p.count);
                 }
             }
         }
@@ -0,0 +1,127 @@
+public class Hash128 {
+    
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+    
+    // MurmurHash3 x64, 128 бит: блоки по 16 байт, два 64-битных состояния.
+    // Результат — {h1, h2}, совпадает с эталонной реализацией
+    public static long[] murmur3(byte[] data, int offset, int length, long seed) {
+        long h1 = seed;
+        long h2 = seed;
+        int blocks = length >>> 4;
+        int p = offset;
+        for (int i = 0; i < blocks; i++, p += 16) {
+            long k1 = getLong(data, p);
+            long k2 = getLong(data, p + 8);
+            
+            k1 *= C1; k1 = Long.rotateLeft(k1, 31); k1 *= C2; h1 ^= k1;
+            h1 = Long.rotateLeft(h1, 27); h1 += h2; h1 = h1 * 5 + 0x52dce729;
+            k2 *= C2; k2 = Long.rotateLeft(k2, 33); k2 *= C1; h2 ^= k2;
+            h2 = Long.rotateLeft(h2, 31); h2 += h1; h2 = h2 * 5 + 0x38495ab5;
+        }
+        
+        // Хвост: до 15 байт, младшие байты первыми
+        long k1 = 0;
+        long k2 = 0;
+        int tail = length & 15;
+        for (int i = tail - 1; i >= 8; i--) {
+            k2 = k2 << 8 | (data[p + i] & 0xFF);
+        }
+        for (int i = Math.min(tail, 8) - 1; i >= 0; i--) {
+            k1 = k1 << 8 | (data[p + i] & 0xFF);
+        }
+        if (tail > 8) {
+            k2 *= C2; k2 = Long.rotateLeft(k2, 33); k2 *= C1; h2 ^= k2;
+        }
+        if (tail > 0) {
+            k1 *= C1; k1 = Long.rotateLeft(k1, 31); k1 *= C2; h1 ^= k1;
+        }
+        
+        h1 ^= length;
+        h2 ^= length;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix(h1);
+        h2 = fmix(h2);
+        h1 += h2;
+        h2 += h1;
+        return new long[] {h1, h2};
+    }
+    
+    // То же для строки как байтов UTF-16LE (по два на символ), но без
+    // копии: блок — 8 символов, хвост собирается из символов
+    public static long[] murmur3(CharSequence data, long seed) {
+        long h1 = seed;
+        long h2 = seed;
+        int chars = data.length();
+        int blocks = chars >>> 3;
+        int p = 0;
+        for (int i = 0; i < blocks; i++, p += 8) {
+            long k1 = getLong(data, p);
+            long k2 = getLong(data, p + 4);
+            
+            k1 *= C1; k1 = Long.rotateLeft(k1, 31); k1 *= C2; h1 ^= k1;
+            h1 = Long.rotateLeft(h1, 27); h1 += h2; h1 = h1 * 5 + 0x52dce729;
+            k2 *= C2; k2 = Long.rotateLeft(k2, 33); k2 *= C1; h2 ^= k2;
+            h2 = Long.rotateLeft(h2, 31); h2 += h1; h2 = h2 * 5 + 0x38495ab5;
+        }
+        
+        long k1 = 0;
+        long k2 = 0;
+        int tail = chars & 7;
+        for (int i = tail - 1; i >= 4; i--) {
+            k2 = k2 << 16 | data.charAt(p + i);
+        }
+        for (int i = Math.min(tail, 4) - 1; i >= 0; i--) {
+            k1 = k1 << 16 | data.charAt(p + i);
+        }
+        if (tail > 4) {
+            k2 *= C2; k2 = Long.rotateLeft(k2, 33); k2 *= C1; h2 ^= k2;
+        }
+        if (tail > 0) {
+            k1 *= C1; k1 = Long.rotateLeft(k1, 31); k1 *= C2; h1 ^= k1;
+        }
+        
+        int length = chars * 2;
+        h1 ^= length;
+        h2 ^= length;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix(h1);
+        h2 = fmix(h2);
+        h1 += h2;
+        h2 += h1;
+        return new long[] {h1, h2};
+    }
+    
+    public static long[] murmur3(byte[] data) {
+        return murmur3(data, 0, data.length, 0);
+    }
+    
+    private static long getLong(byte[] data, int p) {
+        return (data[p] & 0xFFL)
+            | (data[p + 1] & 0xFFL) << 8
+            | (data[p + 2] & 0xFFL) << 16
+            | (data[p + 3] & 0xFFL) << 24
+            | (data[p + 4] & 0xFFL) << 32
+            | (data[p + 5] & 0xFFL) << 40
+            | (data[p + 6] & 0xFFL) << 48
+            | (data[p + 7] & 0xFFL) << 56;
+    }
+    
+    private static long getLong(CharSequence data, int p) {
+        return data.charAt(p)
+            | (long) data.charAt(p + 1) << 16
+            | (long) data.charAt(p + 2) << 32
+            | (long) data.charAt(p + 3) << 48;
+    }
+    
+    private static long fmix(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+}
\ No newline at end of file
@@ -1,75 +1,94 @@
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
+import spi.ParamReader;
+import spi.ParamWriter;
+import spi.TransformMethod;
 
 public class MegaPR {
-    // Гигантский ПР: мапа "сигнатура паттерна" -> "метод обработки"
-    private static final Map<String, TransformMethod> PATTERN_DB = new HashMap<>();
+    // Гигантский ПР: мапа "сигнатура паттерна" -> "метод обработки".
+    // Обработчики можно добавлять и заменять на ходу; каждый цикл
+    // сжатия и распаковки работает со своим снимком базы
+    private static final TransformRegistry PATTERN_DB = new TransformRegistry();
     
-    // Метод обработки паттерна
-    interface TransformMethod {
-        String encode(String input, Map<String, Object> params);
-        String decode(String encoded, Map<String, Object> params);
-        String getSignature();
-    }
+    // Словарь добытых паттернов на диске: сигнатура -> метод из PATTERN_DB.
+    // Отображается в память, поэтому миллионы записей не стоят ни кучи,
+    // ни времени запуска
+    private static volatile PatternDictionary dictionary;
+    
+    // Запомненный выбор паттернов для уже виденных данных
+    private static final SelectionCache SELECTION_CACHE = new SelectionCache(4096);
+    
+    // Максимальная длина последовательности паттернов при поиске
+    private static final int SEARCH_DEPTH = 6;
     
     static {
         // Инициализируем ПР тысячами паттернов (в реальности это терабайты)
         initPatternDatabase();
+        PATTERN_DB.loadServices(MegaPR.class.getClassLoader());
+    }
+    
+    public static TransformRegistry registry() {
+        return PATTERN_DB;
+    }
+    
+    public static SelectionCache selectionCache() {
+        return SELECTION_CACHE;
     }
     
     private static void initPatternDatabase() {
-        // Паттерн 1: Длинные последовательности 'A' (частые в BASE64)
-        PATTERN_DB.put("AAA_PATTERN", new TransformMethod() {
+        // Паттерн 1: Длинные последовательности 'A' (частые в BASE64).
+        // Серии из 3+ 'A' вырезаются из текста, их позиции (в выходе,
+        // разностями) и длины уходят в параметры — текст не трогаем
+        PATTERN_DB.register(new TransformMethod() {
             @Override
-            public String encode(String input, Map<String, Object> params) {
-                // Заменяем последовательности из 3+ 'A' на специальный маркер
-                StringBuilder sb = new StringBuilder();
+            public String encode(String input, ParamWriter params) {
+                StringBuilder sb = new StringBuilder(input.length());
+                // Пары (позиция в выходе, длина серии)
+                int[] runs = new int[16];
                 int count = 0;
-                for (int i = 0; i < input.length(); i++) {
-                    if (input.charAt(i) == 'A') {
+                int i = 0;
+                while (i < input.length()) {
+                    int j = i;
+                    while (j < input.length() && input.charAt(j) == 'A') j++;
+                    if (j - i >= 3) {
+                        if (2 * count + 2 > runs.length) runs = Arrays.copyOf(runs, runs.length * 2);
+                        runs[2 * count] = sb.length();
+                        runs[2 * count + 1] = j - i;
                         count++;
                     } else {
-                        if (count >= 3) {
-                            sb.append("§A").append(count).append("§");
-                            params.put("AAA_" + (i-count), count);
-                        } else if (count > 0) {
-                            for (int j = 0; j < count; j++) sb.append('A');
-                        }
-                        count = 0;
-                        sb.append(input.charAt(i));
+                        sb.append(input, i, j);
                     }
+                    if (j < input.length()) sb.append(input.charAt(j));
+                    i = j + 1;
                 }
-                if (count >= 3) {
-                    sb.append("§A").append(count).append("§");
+                params.writeInt(count);
+                for (int r = 0; r < count; r++) {
+                    params.writePosition(runs[2 * r]).writeInt(runs[2 * r + 1] - 3);
                 }
                 return sb.toString();
             }
             
             @Override
-            public String decode(String encoded, Map<String, Object> params) {
-                // Восстанавливаем 'A'
-                StringBuilder sb = new StringBuilder();
-                for (int i = 0; i < encoded.length(); i++) {
-                    if (encoded.charAt(i) == '§' && i+1 < encoded.length() && encoded.charAt(i+1) == 'A') {
-                        int end = encoded.indexOf("§", i+2);
-                        if (end > 0) {
-                            int count = Integer.parseInt(encoded.substring(i+2, end));
-                            for (int j = 0; j < count; j++) sb.append('A');
-                            i = end;
-                        } else {
-                            sb.append(encoded.charAt(i));
-                        }
-                    } else {
-                        sb.append(encoded.charAt(i));
-                    }
+            public String decode(String encoded, ParamReader params) {
+                int count = params.readInt();
+                StringBuilder sb = new StringBuilder(encoded.length());
+                int from = 0;
+                for (int r = 0; r < count; r++) {
+                    int at = params.readPosition();
+                    int length = params.readInt() + 3;
+                    if (at < from || at > encoded.length()) throw new IllegalArgumentException("Серия вне данных: " + at);
+                    sb.append(encoded, from, at);
+                    for (int k = 0; k < length; k++) sb.append('A');
+                    from = at;
                 }
+                sb.append(encoded, from, encoded.length());
                 return sb.toString();
             }
             
@@ -78,17 +97,18 @@ public class MegaPR {
         });
         
         // Паттерн 2: BWT с оптимизацией
-        PATTERN_DB.put("BWT_OPTIMIZED", new TransformMethod() {
+        PATTERN_DB.register(new TransformMethod() {
             @Override
-            public String encode(String input, Map<String, Object> params) {
+            public String encode(String input, ParamWriter params) {
                 BWTTransformer.BWTResult bwt = BWTTransformer.forwardBWT(input);
-                params.put("bwt_index", bwt.index);
+                // У пустой строки индекс -1, поэтому храним index + 1
+                params.writeInt(bwt.index + 1);
                 return bwt.transformed;
             }
             
             @Override
-            public String decode(String encoded, Map<String, Object> params) {
-                int index = (int) params.get("bwt_index");
+            public String decode(String encoded, ParamReader params) {
+                int index = params.readInt() - 1;
                 return BWTTransformer.inverseBWT(encoded, index);
             }
             
@@ -96,11 +116,15 @@ public class MegaPR {
             public String getSignature() { return "BWT_OPTIMIZED"; }
         });
         
-        // Паттерн 3: RUN-LENGTH для повторов
-        PATTERN_DB.put("RLE_ADVANCED", new TransformMethod() {
+        // Паттерн 3: RUN-LENGTH для повторов. Серия из 3+ одинаковых
+        // символов остаётся в тексте одним символом, позиция и длина —
+        // в параметрах, так что маркеры не путаются с данными
+        PATTERN_DB.register(new TransformMethod() {
             @Override
-            public String encode(String input, Map<String, Object> params) {
+            public String encode(String input, ParamWriter params) {
                 StringBuilder sb = new StringBuilder();
+                int[] runs = new int[16];
+                int count = 0;
                 int i = 0;
                 while (i < input.length()) {
                     int j = i;
@@ -109,34 +133,41 @@ public class MegaPR {
                     }
                     int runLength = j - i;
                     if (runLength > 2) {
-                        sb.append("«").append(input.charAt(i)).append(runLength).append("»");
+                        if (2 * count + 2 > runs.length) runs = Arrays.copyOf(runs, runs.length * 2);
+                        runs[2 * count] = sb.length();
+                        runs[2 * count + 1] = runLength;
+                        count++;
+                        sb.append(input.charAt(i));
                         i = j;
                     } else {
                         sb.append(input.charAt(i));
                         i++;
                     }
                 }
+                params.writeInt(count);
+                for (int r = 0; r < count; r++) {
+                    params.writePosition(runs[2 * r]).writeInt(runs[2 * r + 1] - 3);
+                }
                 return sb.toString();
             }
             
             @Override
-            public String decode(String encoded, Map<String, Object> params) {
-                StringBuilder sb = new StringBuilder();
-                for (int i = 0; i < encoded.length(); i++) {
-                    if (encoded.charAt(i) == '«' && i+2 < encoded.length()) {
-                        char ch = encoded.charAt(i+1);
-                        int end = encoded.indexOf("»", i+2);
-                        if (end > 0) {
-                            int count = Integer.parseInt(encoded.substring(i+2, end));
-                            for (int j = 0; j < count; j++) sb.append(ch);
-                            i = end;
-                        } else {
-                            sb.append(encoded.charAt(i));
-                        }
-                    } else {
-                        sb.append(encoded.charAt(i));
+            public String decode(String encoded, ParamReader params) {
+                int count = params.readInt();
+                StringBuilder sb = new StringBuilder(encoded.length());
+                int from = 0;
+                for (int r = 0; r < count; r++) {
+                    int at = params.readPosition();
+                    int length = params.readInt() + 3;
+                    if (at < from || at >= encoded.length()) {
+                        throw new IllegalArgumentException("Серия вне данных: " + at);
                     }
+                    sb.append(encoded, from, at);
+                    char ch = encoded.charAt(at);
+                    for (int k = 0; k < length; k++) sb.append(ch);
+                    from = at + 1;
                 }
+                sb.append(encoded, from, encoded.length());
                 return sb.toString();
             }
             
@@ -145,15 +176,28 @@ public class MegaPR {
         });
     }
     
+    // Подключает словарь паттернов (предыдущий закрывается)
+    public static void loadPatternDictionary(Path file) throws IOException {
+        PatternDictionary previous = dictionary;
+        dictionary = PatternDictionary.open(file);
+        if (previous != null) previous.close();
+        // Новые правила меняют выбор паттернов
+        SELECTION_CACHE.clear();
+    }
+    
+    private static final byte[] RESULT_MAGIC = {'P', 'M', 'C', 'R'};
+    private static final byte RESULT_VERSION = 1;
+    
     // Многоуровневое сжатие с использованием ПР
     public static class CompressionResult {
         public final byte[] data;
         public final List<String> usedPatterns;
-        public final List<Map<String, Object>> patternParams;
+        // Параметры каждого паттерна в формате ParamWriter
+        public final List<byte[]> patternParams;
         public final int originalSize;
         
         public CompressionResult(byte[] data, List<String> patterns, 
-                                List<Map<String, Object>> params, int originalSize) {
+                                List<byte[]> params, int originalSize) {
             this.data = data;
             this.usedPatterns = patterns;
             this.patternParams = params;
@@ -163,33 +207,108 @@ public class MegaPR {
         public double getCompressionRatio() {
             return (double) data.length / originalSize;
         }
+        
+        // Сохраняемый вид: "PMCR", версия, исходный размер, число паттернов,
+        // для каждого сигнатура и параметры, затем ZIP-данные до конца
+        public byte[] toBytes() {
+            ParamWriter header = new ParamWriter();
+            header.writeInt(originalSize).writeInt(usedPatterns.size());
+            for (int i = 0; i < usedPatterns.size(); i++) {
+                header.writeString(usedPatterns.get(i)).writeInt(patternParams.get(i).length);
+            }
+            int paramsSize = 0;
+            for (byte[] params : patternParams) paramsSize += params.length;
+            
+            byte[] head = header.toByteArray();
+            ByteBuffer out = ByteBuffer.allocate(5 + head.length + paramsSize + data.length);
+            out.put(RESULT_MAGIC).put(RESULT_VERSION).put(head);
+            for (byte[] params : patternParams) out.put(params);
+            out.put(data);
+            return out.array();
+        }
+        
+        public static CompressionResult fromBytes(byte[] bytes) {
+            ByteBuffer in = ByteBuffer.wrap(bytes);
+            try {
+                byte[] magic = new byte[RESULT_MAGIC.length];
+                in.get(magic);
+                if (!Arrays.equals(magic, RESULT_MAGIC)) {
+                    throw new IllegalArgumentException("Это не результат MegaPR");
+                }
+                byte version = in.get();
+                if (version != RESULT_VERSION) {
+                    throw new IllegalArgumentException("Неподдерживаемая версия: " + version);
+                }
+                int originalSize = VarInts.read(in);
+                int count = VarInts.read(in);
+                List<String> patterns = new ArrayList<>(Math.min(count, 64));
+                int[] sizes = new int[Math.min(count, in.remaining())];
+                if (count > sizes.length) throw new IllegalArgumentException("Повреждён список паттернов");
+                for (int i = 0; i < count; i++) {
+                    byte[] name = new byte[VarInts.read(in)];
+                    in.get(name);
+                    patterns.add(new String(name, StandardCharsets.UTF_8));
+                    sizes[i] = VarInts.read(in);
+                }
+                List<byte[]> params = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    byte[] p = new byte[sizes[i]];
+                    in.get(p);
+                    params.add(p);
+                }
+                byte[] data = new byte[in.remaining()];
+                in.get(data);
+                return new CompressionResult(data, patterns, params, originalSize);
+            } catch (BufferUnderflowException | NegativeArraySizeException e) {
+                throw new IllegalArgumentException("Результат MegaPR обрезан или повреждён");
+            }
+        }
     }
     
     // Циклическое сжатие
     public static CompressionResult compressCyclic(String input, int maxCycles) {
+        Map<String, TransformMethod> db = PATTERN_DB.snapshot();
         String current = input;
         List<String> usedPatterns = new ArrayList<>();
-        List<Map<String, Object>> allParams = new ArrayList<>();
+        List<byte[]> allParams = new ArrayList<>();
         
         System.out.println("=== ЦИКЛИЧЕСКОЕ СЖАТИЕ ===");
         System.out.printf("Начальный размер: %d символов%n", input.length());
         
-        for (int cycle = 0; cycle < maxCycles; cycle++) {
+        // Уже виденные данные: повторяем запомненные паттерны
+        // без анализа и пробных сжатий
+        SelectionCache.Key key = SelectionCache.key(input, maxCycles);
+        SelectionCache.Selection cached = SELECTION_CACHE.get(key);
+        String replayed = cached == null ? null : replay(db, cached.patterns, input, usedPatterns, allParams);
+        if (replayed != null) {
+            System.out.printf("Выбор из кэша: %s%n", cached.patterns);
+            current = replayed;
+        }
+        
+        for (int cycle = 0; replayed == null && cycle < maxCycles; cycle++) {
             System.out.printf("%nЦикл %d:%n", cycle + 1);
             System.out.println("-".repeat(40));
             
             // 1. Анализируем данные, выбираем лучший паттерн из ПР
             String bestPattern = selectBestPattern(current);
-            TransformMethod method = PATTERN_DB.get(bestPattern);
+            TransformMethod method = db.get(bestPattern);
             
             if (method == null) break;
             
             // 2. Применяем преобразование
-            Map<String, Object> params = new HashMap<>();
+            ParamWriter params = new ParamWriter();
             String transformed = method.encode(current, params);
             
+            // Дешёвая оценка: заведомо проигрышный цикл не сжимаем целиком
+            if (cycle > 0 && !CompressedSizeEstimator.canWin(
+                    CompressedSizeEstimator.estimate(transformed), (int) (current.length() * 0.95))) {
+                System.out.printf("Паттерн: %s — по оценке выигрыша нет%n", bestPattern);
+                System.out.println("Достигнут локальный минимум, останавливаемся.");
+                break;
+            }
+            
             // 3. Проверяем, стало ли лучше
-            byte[] compressed = compressWithZip(transformed);
+            byte[] compressed = ZipCodec.DEFAULT.compress(transformed);
             
             System.out.printf("Паттерн: %s%n", bestPattern);
             System.out.printf("Размер после преобразования: %d символов%n", transformed.length());
@@ -203,7 +322,7 @@ public class MegaPR {
             
             // 4. Сохраняем для следующего цикла
             usedPatterns.add(bestPattern);
-            allParams.add(params);
+            allParams.add(params.toByteArray());
             current = transformed;
             
             // Для демо: после каждого цикла показываем первые 30 символов
@@ -212,7 +331,7 @@ public class MegaPR {
         }
         
         // Финальное сжатие
-        byte[] finalCompressed = compressWithZip(current);
+        byte[] finalCompressed = ZipCodec.DEFAULT.compress(current);
         
         System.out.println("\n" + "=".repeat(60));
         System.out.printf("Использовано паттернов: %d%n", usedPatterns.size());
@@ -220,24 +339,49 @@ public class MegaPR {
         System.out.printf("Коэффициент сжатия: %.3f%n", 
             (double) finalCompressed.length / input.length());
         
+        if (replayed == null) {
+            SELECTION_CACHE.put(key, new SelectionCache.Selection(usedPatterns, finalCompressed.length));
+        }
         return new CompressionResult(finalCompressed, usedPatterns, allParams, input.length());
     }
     
+    // Применяет паттерны по порядку; если какого-то уже нет в базе —
+    // null, и выбор делается заново
+    private static String replay(Map<String, TransformMethod> db, List<String> patterns, String input,
+                                 List<String> usedPatterns, List<byte[]> allParams) {
+        String current = input;
+        for (String pattern : patterns) {
+            TransformMethod method = db.get(pattern);
+            if (method == null) {
+                usedPatterns.clear();
+                allParams.clear();
+                return null;
+            }
+            ParamWriter params = new ParamWriter();
+            current = method.encode(current, params);
+            usedPatterns.add(pattern);
+            allParams.add(params.toByteArray());
+        }
+        return current;
+    }
+    
     // Распаковка
     public static String decompressCyclic(CompressionResult result) {
         System.out.println("\n=== ЦИКЛИЧЕСКАЯ РАСПАКОВКА ===");
         
+        Map<String, TransformMethod> db = PATTERN_DB.snapshot();
+        
         // 1. Распаковываем ZIP
-        String current = decompressFromZip(result.data);
+        String current = ZipCodec.decompressToString(result.data);
         
         // 2. Применяем паттерны в обратном порядке
         for (int i = result.usedPatterns.size() - 1; i >= 0; i--) {
             String patternName = result.usedPatterns.get(i);
-            TransformMethod method = PATTERN_DB.get(patternName);
-            if (method != null) {
-                System.out.printf("Применяем паттерн %s...%n", patternName);
-                current = method.decode(current, result.patternParams.get(i));
-            }
+            TransformMethod method = db.get(patternName);
+            // Пропуск паттерна молча испортил бы данные
+            if (method == null) throw new IllegalArgumentException("Неизвестный паттерн: " + patternName);
+            System.out.printf("Применяем паттерн %s...%n", patternName);
+            current = method.decode(current, new ParamReader(result.patternParams.get(i)));
         }
         
         System.out.printf("Восстановлено символов: %d%n", current.length());
@@ -248,24 +392,18 @@ public class MegaPR {
         // В реальном ПР здесь сложный анализ: ML, статистика
         // Здесь упрощённо: смотрим на частые паттерны
         
-        // Считаем количество 'A'
-        long countA = data.chars().filter(c -> c == 'A').count();
-        double ratioA = (double) countA / data.length();
+        // Доля 'A' и самая длинная серия — за один проход
+        DataProfiler.DataProfile profile = DataProfiler.profile(data);
+        double ratioA = profile.ratio('A');
+        int maxRun = profile.longestRun;
         
-        // Считаем повторяющиеся символы
-        int maxRun = 0;
-        char runChar = 0;
-        int currentRun = 1;
-        for (int i = 1; i < data.length(); i++) {
-            if (data.charAt(i) == data.charAt(i-1)) {
-                currentRun++;
-                if (currentRun > maxRun) {
-                    maxRun = currentRun;
-                    runChar = data.charAt(i);
-                }
-            } else {
-                currentRun = 1;
-            }
+        // Сначала правила из словаря: ключ — грубый отпечаток профиля.
+        // Возвращается сигнатура метода, а не ключ, — распаковка не
+        // должна зависеть от того, какой словарь загружен
+        PatternDictionary dict = dictionary;
+        if (dict != null) {
+            PatternDictionary.Entry entry = dict.lookup(profileSignature(profile));
+            if (entry != null) return entry.method;
         }
         
         // Выбираем лучший паттерн
@@ -278,84 +416,35 @@ public class MegaPR {
         }
     }
     
-    private static byte[] compressWithZip(String data) {
-        try {
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            try (GZIPOutputStream gzos = new GZIPOutputStream(baos)) {
-                gzos.write(data.getBytes(StandardCharsets.UTF_8));
-            }
-            return baos.toByteArray();
-        } catch (Exception e) {
-            return new byte[0];
-        }
+    // Отпечаток профиля для словаря: тип данных, энтропия с шагом 0.25 бита,
+    // самая длинная серия (до 16) и доля 'A' в десятых
+    static String profileSignature(DataProfiler.DataProfile profile) {
+        return (profile.base64 ? "b64" : "raw")
+            + "/e" + Math.round(profile.entropy * 4)
+            + "/r" + Math.min(profile.longestRun, 16)
+            + "/a" + (int) (profile.ratio('A') * 10);
     }
     
-    private static String decompressFromZip(byte[] data) {
-        try {
-            ByteArrayInputStream bais = new ByteArrayInputStream(data);
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            try (GZIPInputStream gzis = new GZIPInputStream(bais)) {
-                byte[] buffer = new byte[1024];
-                int len;
-                while ((len = gzis.read(buffer)) > 0) {
-                    baos.write(buffer, 0, len);
-                }
-            }
-            return baos.toString(StandardCharsets.UTF_8);
-        } catch (Exception e) {
-            return "";
-        }
-    }
-    
-    // Тест на бесконечном цикле (с ограничением по времени)
-    public static void testInfiniteCompression(String input, int maxSeconds) {
-        System.out.println("=== ТЕСТ БЕСКОНЕЧНОГО СЖАТИЯ ===");
+    // Поиск лучшей последовательности паттернов за отведённое время:
+    // параллельный отжиг на всех ядрах (см. TransformSearch).
+    // Возвращает результат, который гарантированно распаковывается
+    public static CompressionResult testInfiniteCompression(String input, int maxSeconds) {
+        System.out.println("=== ПОИСК ЛУЧШЕЙ ПОСЛЕДОВАТЕЛЬНОСТИ ===");
         System.out.println("(ограничение: " + maxSeconds + " секунд)");
         
-        String current = input;
-        int cycle = 0;
+        int workers = Runtime.getRuntime().availableProcessors();
         long startTime = System.currentTimeMillis();
+        TransformSearch.Result best = TransformSearch.search(input, PATTERN_DB.snapshot(),
+            SEARCH_DEPTH, maxSeconds * 1000L, workers, System.nanoTime());
+        byte[] compressed = ZipCodec.DEFAULT.compress(best.transformed);
         
-        while (System.currentTimeMillis() - startTime < maxSeconds * 1000) {
-            cycle++;
-            
-            // Выбираем случайный паттерн (в реальном ПР - интеллектуально)
-            List<String> patterns = new ArrayList<>(PATTERN_DB.keySet());
-            String pattern = patterns.get((int)(Math.random() * patterns.size()));
-            TransformMethod method = PATTERN_DB.get(pattern);
-            
-            Map<String, Object> params = new HashMap<>();
-            String transformed = method.encode(current, params);
-            byte[] compressed = compressWithZip(transformed);
-            
-            double ratio = (double) compressed.length / current.length();
-            
-            System.out.printf("Цикл %4d: %s -> размер: %d, ratio: %.3f%n",
-                cycle, pattern, compressed.length, ratio);
-            
-            // Если сжатие стало хуже - пробуем другой подход
-            if (ratio >= 1.0) {
-                System.out.println("  Сжатие ухудшилось, пробуем другой паттерн...");
-                continue;
-            }
-            
-            current = transformed;
-            
-            // Эксперимент: иногда пробуем распаковать и снова сжать другим методом
-            if (cycle % 5 == 0) {
-                String decompressed = method.decode(current, params);
-                // Пробуем другой паттерн на распакованных данных
-                String otherPattern = patterns.get((int)(Math.random() * patterns.size()));
-                if (!otherPattern.equals(pattern)) {
-                    TransformMethod otherMethod = PATTERN_DB.get(otherPattern);
-                    Map<String, Object> otherParams = new HashMap<>();
-                    current = otherMethod.encode(decompressed, otherParams);
-                }
-            }
-        }
-        
-        System.out.printf("%nВсего циклов: %d%n", cycle);
-        System.out.printf("Общее время: %.1f сек%n", 
+        System.out.printf("Потоков: %d, проверено последовательностей: %d%n", workers, best.evaluations);
+        System.out.printf("Лучшая последовательность: %s%n", best.patterns);
+        System.out.printf("Финальный размер: %d байт, ratio: %.3f%n",
+            compressed.length, (double) compressed.length / input.length());
+        System.out.printf("Общее время: %.1f сек%n",
             (System.currentTimeMillis() - startTime) / 1000.0);
+        
+        return new CompressionResult(compressed, best.patterns, best.params, input.length());
     }
 }
\ No newline at end of file
@@ -0,0 +1,152 @@
+import java.util.Arrays;
+
+public class MoveToFront {
+    
+    // Символы нулевых серий (как RUNA/RUNB в bzip2)
+    public static final int RUNA = 0;
+    public static final int RUNB = 1;
+    
+    // Стадия для блочного BWT
+    public static final BlockBWT.BlockStage STAGE = new BlockBWT.BlockStage() {
+        @Override
+        public byte[] encode(byte[] block) {
+            return MoveToFront.encode(block);
+        }
+        
+        @Override
+        public byte[] decode(byte[] block) {
+            return MoveToFront.decode(block);
+        }
+    };
+    
+    // Прямое MTF: каждый байт заменяется его позицией в алфавите,
+    // затем символ переносится в начало
+    public static byte[] encode(byte[] input) {
+        byte[] order = identity();
+        byte[] output = new byte[input.length];
+        
+        for (int i = 0; i < input.length; i++) {
+            byte b = input[i];
+            byte prev = order[0];
+            if (prev == b) {
+                continue; // индекс 0, массив уже заполнен нулями
+            }
+            // Сдвигаем алфавит вправо, пока не встретим символ
+            int j = 1;
+            while (true) {
+                byte tmp = order[j];
+                order[j] = prev;
+                if (tmp == b) break;
+                prev = tmp;
+                j++;
+            }
+            order[0] = b;
+            output[i] = (byte) j;
+        }
+        return output;
+    }
+    
+    // Обратное MTF
+    public static byte[] decode(byte[] input) {
+        byte[] order = identity();
+        byte[] output = new byte[input.length];
+        
+        for (int i = 0; i < input.length; i++) {
+            int index = input[i] & 0xFF;
+            byte b = order[index];
+            if (index > 0) {
+                System.arraycopy(order, 0, order, 1, index);
+                order[0] = b;
+            }
+            output[i] = b;
+        }
+        return output;
+    }
+    
+    // MTF со встроенным кодированием нулевых серий.
+    // Серия из нулей записывается биективной двоичной записью символами
+    // RUNA/RUNB, ненулевой индекс k записывается как k + 1 (диапазон 2..256).
+    public static int[] encodeZeroRun(byte[] input) {
+        byte[] order = identity();
+        int[] output = new int[input.length + 1];
+        int size = 0;
+        int zeros = 0;
+        
+        for (byte b : input) {
+            byte prev = order[0];
+            if (prev == b) {
+                zeros++;
+                continue;
+            }
+            if (zeros > 0) {
+                size = writeRun(output, size, zeros);
+                zeros = 0;
+            }
+            int j = 1;
+            while (true) {
+                byte tmp = order[j];
+                order[j] = prev;
+                if (tmp == b) break;
+                prev = tmp;
+                j++;
+            }
+            order[0] = b;
+            output[size++] = j + 1;
+        }
+        if (zeros > 0) {
+            size = writeRun(output, size, zeros);
+        }
+        return Arrays.copyOf(output, size);
+    }
+    
+    // Обратное преобразование для encodeZeroRun
+    public static byte[] decodeZeroRun(int[] symbols, int originalLength) {
+        byte[] order = identity();
+        byte[] output = new byte[originalLength];
+        int pos = 0;
+        int run = 0;
+        int weight = 1;
+        
+        for (int symbol : symbols) {
+            if (symbol == RUNA || symbol == RUNB) {
+                run += (symbol == RUNA) ? weight : weight << 1;
+                weight <<= 1;
+                continue;
+            }
+            if (run > 0) {
+                Arrays.fill(output, pos, pos + run, order[0]);
+                pos += run;
+                run = 0;
+                weight = 1;
+            }
+            int index = symbol - 1;
+            byte b = order[index];
+            System.arraycopy(order, 0, order, 1, index);
+            order[0] = b;
+            output[pos++] = b;
+        }
+        if (run > 0) {
+            Arrays.fill(output, pos, pos + run, order[0]);
+        }
+        return output;
+    }
+    
+    // Длина серии в биективной двоичной записи (младший разряд первым)
+    private static int writeRun(int[] output, int size, int zeros) {
+        int run = zeros - 1;
+        while (true) {
+            output[size++] = (run & 1) == 0 ? RUNA : RUNB;
+            if (run < 2) break;
+            run = (run - 2) >> 1;
+        }
+        return size;
+    }
+    
+    private static byte[] identity() {
+        byte[] order = new byte[256];
+        for (int i = 0; i < 256; i++) {
+            order[i] = (byte) i;
+        }
+        return order;
+    }
+}
\ No newline at end of file
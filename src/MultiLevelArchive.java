@@ -0,0 +1,222 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.zip.CRC32;
+
+public class MultiLevelArchive {
+    
+    // Формат архива многоуровневого сжатия:
+    //   заголовок (24 байта): "PMLA", версия (2), число уровней (2),
+    //       исходный размер (8), CRC32 исходных данных (4), резерв (4)
+    //   таблица уровней по 24 байта: преобразование (1), тип данных (1),
+    //       номер уровня (2), размер входа (4), размер выхода (4),
+    //       CRC32 входа (4), смещение параметров (4), длина параметров (4)
+    //   параметры уровней подряд
+    //   данные — ZIP последнего уровня
+    //   хвост (32 байта): смещение таблицы (8), смещение данных (8),
+    //       длина данных (8), CRC32 всего до данных (4), "ALMP"
+    // Таблица фиксированного размера — описание любого уровня читается
+    // напрямую, без распаковки данных
+    private static final int MAGIC = 0x504D4C41;
+    private static final int FOOTER_MAGIC = 0x414C4D50;
+    private static final short VERSION = 1;
+    private static final int HEADER_SIZE = 24;
+    private static final int DESCRIPTOR_SIZE = 24;
+    private static final int FOOTER_SIZE = 32;
+    
+    // Запись одним gather-вызовом: метаданные, данные и хвост
+    public static void write(Path file, MultiLevelCompressor.MultiLevelResult result) throws IOException {
+        List<MultiLevelCompressor.CompressionLevel> levels = result.levels;
+        if (levels.size() > Short.MAX_VALUE) throw new IOException("Слишком много уровней: " + levels.size());
+        int paramsSize = 0;
+        for (MultiLevelCompressor.CompressionLevel level : levels) paramsSize += level.params.length;
+        int tableOffset = HEADER_SIZE;
+        int payloadOffset = tableOffset + levels.size() * DESCRIPTOR_SIZE + paramsSize;
+        
+        ByteBuffer meta = ByteBuffer.allocate(payloadOffset);
+        meta.putInt(MAGIC).putShort(VERSION).putShort((short) levels.size())
+            .putLong(result.originalSize()).putInt(result.originalChecksum()).putInt(0);
+        int paramsOffset = 0;
+        for (MultiLevelCompressor.CompressionLevel level : levels) {
+            // Неизвестное преобразование ловим здесь, а не при чтении архива
+            int transformId = MultiLevelCompressor.TRANSFORMS.indexOf(level.transform);
+            if (transformId < 0) throw new IOException("Неизвестное преобразование уровня: " + level.transform);
+            meta.put((byte) transformId)
+                .put((byte) level.dataType.ordinal())
+                .putShort((short) level.level)
+                .putInt(level.inputSize)
+                .putInt(level.outputSize)
+                .putInt(level.inputCrc)
+                .putInt(paramsOffset)
+                .putInt(level.params.length);
+            paramsOffset += level.params.length;
+        }
+        for (MultiLevelCompressor.CompressionLevel level : levels) meta.put(level.params);
+        meta.flip();
+        
+        ByteBuffer footer = ByteBuffer.allocate(FOOTER_SIZE);
+        footer.putLong(tableOffset).putLong(payloadOffset).putLong(result.finalData.length)
+            .putInt(crc(meta.duplicate())).putInt(FOOTER_MAGIC);
+        footer.flip();
+        
+        ByteBuffer[] parts = {meta, ByteBuffer.wrap(result.finalData), footer};
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (footer.hasRemaining()) {
+                out.write(parts);
+            }
+        }
+    }
+    
+    // Открывает архив через отображение в память; проверяются только
+    // хвост, заголовок и CRC метаданных — данные не трогаются
+    public static Archive open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) throw new IOException("Архив больше 2 ГБ: " + size);
+            if (size < HEADER_SIZE + FOOTER_SIZE) throw new IOException("Архив обрезан");
+            return new Archive(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+    
+    // Распаковка пачки архивов параллельно; результаты в порядке входа
+    public static List<byte[]> decodeAll(List<Path> files) throws IOException {
+        List<CompletableFuture<byte[]>> futures = new ArrayList<>();
+        for (Path file : files) {
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return open(file).decode();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(file + ": " + e.getMessage(), e);
+                }
+            }));
+        }
+        List<byte[]> results = new ArrayList<>();
+        for (CompletableFuture<byte[]> future : futures) {
+            try {
+                results.add(future.join());
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof UncheckedIOException) {
+                    throw ((UncheckedIOException) e.getCause()).getCause();
+                }
+                throw e;
+            }
+        }
+        return results;
+    }
+    
+    private static int crc(ByteBuffer data) {
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        return (int) crc.getValue();
+    }
+    
+    // Открытый архив: все поля читаются абсолютными get из отображения
+    public static class Archive {
+        private final MappedByteBuffer map;
+        private final int levelCount;
+        private final int tableOffset;
+        private final int payloadOffset;
+        private final int payloadLength;
+        
+        Archive(MappedByteBuffer map) throws IOException {
+            this.map = map;
+            int footer = map.capacity() - FOOTER_SIZE;
+            if (map.getInt(footer + 28) != FOOTER_MAGIC || map.getInt(0) != MAGIC) {
+                throw new IOException("Это не архив многоуровневого сжатия");
+            }
+            if (map.getShort(4) != VERSION) throw new IOException("Неподдерживаемая версия: " + map.getShort(4));
+            this.levelCount = map.getShort(6);
+            long table = map.getLong(footer);
+            long payload = map.getLong(footer + 8);
+            long length = map.getLong(footer + 16);
+            if (table != HEADER_SIZE || levelCount < 0
+                    || payload < table + (long) levelCount * DESCRIPTOR_SIZE
+                    || length < 0 || payload + length != footer) {
+                throw new IOException("Повреждён хвост архива");
+            }
+            this.tableOffset = (int) table;
+            this.payloadOffset = (int) payload;
+            this.payloadLength = (int) length;
+            if (crc(map.slice(0, payloadOffset)) != map.getInt(footer + 24)) {
+                throw new IOException("Контрольная сумма метаданных не совпадает");
+            }
+        }
+        
+        public int levelCount() {
+            return levelCount;
+        }
+        
+        public long originalSize() {
+            return map.getLong(8);
+        }
+        
+        public int originalChecksum() {
+            return map.getInt(16);
+        }
+        
+        public int payloadSize() {
+            return payloadLength;
+        }
+        
+        // Описание уровня (с 0) прямо из таблицы
+        public MultiLevelCompressor.CompressionLevel level(int index) throws IOException {
+            if (index < 0 || index >= levelCount) throw new IndexOutOfBoundsException("Нет уровня " + index);
+            int at = tableOffset + index * DESCRIPTOR_SIZE;
+            int transformId = map.get(at);
+            int dataType = map.get(at + 1);
+            // Смещение считаем в long: int переполнился бы и указал бы назад, в таблицу
+            long tableEnd = tableOffset + (long) levelCount * DESCRIPTOR_SIZE;
+            long paramsAt = tableEnd + map.getInt(at + 16);
+            int paramsLength = map.getInt(at + 20);
+            if (transformId < 0 || transformId >= MultiLevelCompressor.TRANSFORMS.size()
+                    || dataType < 0 || dataType >= DigitalGeologyCompressor.DataType.values().length
+                    || paramsAt < tableEnd || paramsLength < 0
+                    || paramsAt + paramsLength > payloadOffset) {
+                throw new IOException("Повреждено описание уровня " + index);
+            }
+            byte[] params = new byte[paramsLength];
+            map.get((int) paramsAt, params);
+            int inputSize = map.getInt(at + 4);
+            int outputSize = map.getInt(at + 8);
+            return new MultiLevelCompressor.CompressionLevel(
+                map.getShort(at + 2), MultiLevelCompressor.TRANSFORMS.get(transformId),
+                inputSize, outputSize, (double) outputSize / Math.max(1, inputSize),
+                DigitalGeologyCompressor.DataType.values()[dataType], params, map.getInt(at + 12));
+        }
+        
+        public List<MultiLevelCompressor.CompressionLevel> levels() throws IOException {
+            List<MultiLevelCompressor.CompressionLevel> levels = new ArrayList<>(levelCount);
+            for (int i = 0; i < levelCount; i++) levels.add(level(i));
+            return levels;
+        }
+        
+        // Восстанавливает исходные данные и сверяет их с заголовком
+        public byte[] decode() throws IOException {
+            byte[] payload = new byte[payloadLength];
+            map.get(payloadOffset, payload);
+            List<MultiLevelCompressor.CompressionLevel> levels = levels();
+            MultiLevelCompressor.MultiLevelResult result = new MultiLevelCompressor.MultiLevelResult(
+                payload, levels, (double) payloadLength / Math.max(1, originalSize()));
+            byte[] data;
+            try {
+                data = MultiLevelCompressor.decompressMultiLevel(result);
+            } catch (RuntimeException e) {
+                // Испорченные данные всплывают из ZIP и обратных преобразований
+                throw new IOException("Архив повреждён: " + e.getMessage(), e);
+            }
+            if (data.length != originalSize() || MultiLevelCompressor.checksum(data) != originalChecksum()) {
+                throw new IOException("Восстановленные данные не совпадают с заголовком");
+            }
+            return data;
+        }
+    }
+}
\ No newline at end of file
@@ -1,17 +1,26 @@
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.zip.GZIPOutputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.zip.CRC32;
+import spi.ParamReader;
+import spi.ParamWriter;
 
 public class MultiLevelCompressor {
     
+    // Уровень, сжимающий хуже этого, останавливает цепочку
+    static final double MIN_LEVEL_GAIN = 0.95;
+    // Меньше этого размера дальше не сжимаем
+    static final int MIN_SIZE = 100;
+    
+    // Преобразования уровней; номер в списке — идентификатор в архиве
+    static final List<String> TRANSFORMS = List.of(
+        "GROUP_BY_FREQUENCY", "BWT", "SORT_ASC", "RLE", "PATTERN_COMPRESSION", "REPAIR_GRAMMAR",
+        "BLOCK_BWT");
+    
     // Многоуровневое сжатие с адаптивным выбором преобразований
     public static MultiLevelResult compressMultiLevel(byte[] data, int maxLevels) {
         System.out.println("=== МНОГОУРОВНЕВОЕ СЖАТИЕ ===");
@@ -27,8 +36,9 @@ public class MultiLevelCompressor {
             System.out.println("Уровень " + level + ":");
             System.out.println("-".repeat(40));
             
-            // Анализируем текущие данные
-            String currentString = new String(currentData, StandardCharsets.UTF_8);
+            // Анализируем текущие данные: байты как символы 0..255,
+            // без потерь для любых данных, в том числе ZIP прошлого уровня
+            String currentString = new String(currentData, StandardCharsets.ISO_8859_1);
             DigitalGeologyCompressor.PatternAnalysis analysis = 
                 DigitalGeologyCompressor.analyzePatterns(currentString);
             
@@ -36,31 +46,37 @@ public class MultiLevelCompressor {
             String transform = selectTransformForLevel(analysis, level);
             
             // Применяем преобразование и сжимаем
-            String transformed = applyTransform(currentString, transform);
-            byte[] compressed = compressZip(transformed);
+            ParamWriter params = new ParamWriter();
+            byte[] transformed = applyTransform(currentData, transform, params);
+            if (!worthCompressing(transformed, currentData.length, level)) {
+                System.out.println("⚠️ По оценке выигрыша нет, останавливаемся.");
+                break;
+            }
+            byte[] compressed = ZipCodec.DEFAULT.compress(transformed);
             
             // Проверяем, есть ли выигрыш
             double ratio = (double) compressed.length / currentData.length;
             
             CompressionLevel levelResult = new CompressionLevel(
                 level, transform, currentData.length, 
-                compressed.length, ratio, analysis.dataType
+                compressed.length, ratio, analysis.dataType,
+                params.toByteArray(), checksum(currentData)
             );
             
-            levels.add(levelResult);
             levelResult.printStats();
             
-            // Если сжатие ухудшилось, останавливаемся
-            if (ratio >= 0.95 && level > 1) {
+            // Если сжатие ухудшилось, останавливаемся; уровень не применяется
+            if (ratio >= MIN_LEVEL_GAIN && level > 1) {
                 System.out.println("⚠️ Сжатие ухудшилось, останавливаемся.");
                 break;
             }
             
             // Для следующего уровня
+            levels.add(levelResult);
             currentData = compressed;
             
             // Если достигли минимального размера
-            if (compressed.length < 100) {
+            if (compressed.length < MIN_SIZE) {
                 System.out.println("✅ Достигнут минимальный размер.");
                 break;
             }
@@ -82,8 +98,15 @@ public class MultiLevelCompressor {
         return new MultiLevelResult(currentData, levels, totalRatio);
     }
     
+    // Дешёвая оценка перед полным ZIP: уровень, который заведомо не даст
+    // MIN_LEVEL_GAIN, не сжимаем. Первый уровень применяется всегда
+    static boolean worthCompressing(byte[] transformed, int inputSize, int level) {
+        return level == 1 || CompressedSizeEstimator.canWin(
+            CompressedSizeEstimator.estimate(transformed), (int) (inputSize * MIN_LEVEL_GAIN));
+    }
+    
     // Выбор преобразования для уровня
-    private static String selectTransformForLevel(
+    static String selectTransformForLevel(
             DigitalGeologyCompressor.PatternAnalysis analysis, int level) {
         
         // На разных уровнях используем разные стратегии
@@ -91,117 +114,115 @@ public class MultiLevelCompressor {
             case 0:
                 return "GROUP_BY_FREQUENCY";
             case 1:
+                // Большие данные — блоками по 900 КБ параллельно
+                if (analysis.totalChars > BlockBWT.DEFAULT_BLOCK_SIZE) return "BLOCK_BWT";
                 return "BWT";
             case 2:
                 if (analysis.entropy < 3.0) return "RLE";
                 return "SORT_ASC";
             case 3:
+                // Есть повторы — строим грамматику, иначе словарь паттернов
+                if (!analysis.repetitionPatterns.isEmpty()) return "REPAIR_GRAMMAR";
                 return "PATTERN_COMPRESSION";
             default:
                 return "GROUP_BY_FREQUENCY";
         }
     }
     
-    private static String applyTransform(String data, String transform) {
+    // Все преобразования обратимы: то, что нужно для обратного хода,
+    // пишется в params. Сортировка и группировка по частоте — это
+    // SORT и FREQ из BinaryTransform (позиции и ранги сохраняются)
+    static byte[] applyTransform(byte[] data, String transform, ParamWriter params) {
         switch (transform) {
             case "GROUP_BY_FREQUENCY":
-                return groupByFrequency(data);
+                return BinaryTransform.encode(data, BinaryTransform.FREQ);
             case "BWT":
-                try {
-                    BWTTransformer.BWTResult bwt = BWTTransformer.forwardBWT(data);
-                    return bwt.transformed;
-                } catch (Exception e) {
-                    return data;
-                }
+                BWTTransformer.BWTBytesResult bwt = BWTTransformer.forwardBWT(data);
+                // У пустых данных индекс -1, поэтому храним index + 1
+                params.writeInt(bwt.index + 1);
+                return bwt.transformed;
+            case "BLOCK_BWT":
+                return BlockBWT.encode(data).toBytes();
             case "SORT_ASC":
-                char[] sorted = data.toCharArray();
-                Arrays.sort(sorted);
-                return new String(sorted);
+                return BinaryTransform.encode(data, BinaryTransform.SORT);
             case "RLE":
-                return runLengthEncode(data);
+                return BinaryTransform.encode(data, BinaryTransform.RLE);
             case "PATTERN_COMPRESSION":
-                return compressPatterns(data);
+                // Коды паттернов выходят за 255 — в байты через UTF-8
+                return compressPatterns(new String(data, StandardCharsets.ISO_8859_1))
+                    .getBytes(StandardCharsets.UTF_8);
+            case "REPAIR_GRAMMAR":
+                return RePair.compress(new String(data, StandardCharsets.ISO_8859_1)).toBytes();
             default:
-                return data;
-        }
-    }
-    
-    // Компрессия паттернов
-    private static String compressPatterns(String data) {
-        StringBuilder result = new StringBuilder(data);
-        
-        // Ищем часто повторяющиеся подстроки длиной 3-6 символов
-        for (int len = 6; len >= 3; len--) {
-            Map<String, Integer> patternCounts = new HashMap<>();
-            
-            for (int i = 0; i <= data.length() - len; i++) {
-                String pattern = data.substring(i, i + len);
-                patternCounts.put(pattern, patternCounts.getOrDefault(pattern, 0) + 1);
-            }
-            
-            // Заменяем часто встречающиеся паттерны
-            for (Map.Entry<String, Integer> entry : patternCounts.entrySet()) {
-                if (entry.getValue() >= 3) {
-                    String pattern = entry.getKey();
-                    // Заменяем на короткий код
-                    String replacement = "«" + (char)('A' + len) + "»";
-                    String temp = result.toString();
-                    result = new StringBuilder(temp.replace(pattern, replacement));
-                }
-            }
+                throw new IllegalArgumentException("Неизвестное преобразование: " + transform);
         }
-        
-        return result.toString();
     }
     
-    private static String groupByFrequency(String data) {
-        Map<Character, Integer> freq = new HashMap<>();
-        for (char c : data.toCharArray()) freq.put(c, freq.getOrDefault(c, 0) + 1);
-        
-        List<Character> chars = new ArrayList<>(freq.keySet());
-        chars.sort((a, b) -> Integer.compare(freq.get(b), freq.get(a)));
-        
-        StringBuilder result = new StringBuilder();
-        for (char c : chars) {
-            for (int i = 0; i < freq.get(c); i++) result.append(c);
+    // expectedSize — размер входа уровня, им ограничивается развёртка
+    static byte[] reverseTransform(byte[] data, String transform, ParamReader params, int expectedSize) {
+        switch (transform) {
+            case "GROUP_BY_FREQUENCY":
+            case "SORT_ASC":
+            case "RLE":
+                return BinaryTransform.decode(data);
+            case "BWT":
+                return BWTTransformer.inverseBWT(data, params.readInt() - 1);
+            case "BLOCK_BWT":
+                return BlockBWT.decode(BlockBWT.BlockContainer.fromBytes(data));
+            case "PATTERN_COMPRESSION":
+                return PatternSubstitution.decode(new String(data, StandardCharsets.UTF_8))
+                    .getBytes(StandardCharsets.ISO_8859_1);
+            case "REPAIR_GRAMMAR":
+                return RePair.Grammar.fromBytes(data).expand(expectedSize).getBytes(StandardCharsets.ISO_8859_1);
+            default:
+                throw new IllegalArgumentException("Неизвестное преобразование: " + transform);
         }
-        return result.toString();
     }
     
-    private static String runLengthEncode(String data) {
-        StringBuilder result = new StringBuilder();
-        int i = 0;
-        
-        while (i < data.length()) {
-            char current = data.charAt(i);
-            int count = 1;
-            
-            while (i + count < data.length() && data.charAt(i + count) == current) {
-                count++;
+    // Распаковка: уровни снимаются с последнего, ZIP и обратное
+    // преобразование идут по очереди, а контрольная сумма входа каждого
+    // уровня считается параллельно со снятием следующего
+    public static byte[] decompressMultiLevel(MultiLevelResult result) {
+        byte[] current = result.finalData;
+        List<CompletableFuture<Void>> checks = new ArrayList<>();
+        for (int i = result.levels.size() - 1; i >= 0; i--) {
+            CompressionLevel level = result.levels.get(i);
+            byte[] transformed = ZipCodec.decompress(current);
+            current = reverseTransform(transformed, level.transform, new ParamReader(level.params), level.inputSize);
+            if (current.length != level.inputSize) {
+                throw new IllegalArgumentException("Уровень " + level.level + ": размер не совпадает");
             }
-            
-            if (count > 3) {
-                result.append(current).append('[').append(count).append(']');
-                i += count;
-            } else {
-                for (int j = 0; j < count; j++) result.append(current);
-                i += count;
+            byte[] restored = current;
+            checks.add(CompletableFuture.runAsync(() -> {
+                if (checksum(restored) != level.inputCrc) {
+                    throw new IllegalArgumentException("Уровень " + level.level + ": контрольная сумма не совпадает");
+                }
+            }));
+        }
+        for (CompletableFuture<Void> check : checks) {
+            try {
+                check.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof IllegalArgumentException) throw (IllegalArgumentException) e.getCause();
+                throw e;
             }
         }
-        
-        return result.toString();
+        return current;
     }
     
-    private static byte[] compressZip(String data) {
-        try {
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            try (GZIPOutputStream gzos = new GZIPOutputStream(baos)) {
-                gzos.write(data.getBytes(StandardCharsets.UTF_8));
-            }
-            return baos.toByteArray();
-        } catch (Exception e) {
-            return data.getBytes(StandardCharsets.UTF_8);
-        }
+    static int checksum(byte[] data) {
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        return (int) crc.getValue();
+    }
+    
+    // Компрессия паттернов: частые подстроки длиной 3-6 символов
+    // заменяются уникальными кодами за один проход (Ахо-Корасик),
+    // словарь идёт в начале результата — уровень обратим
+    private static String compressPatterns(String data) {
+        // Результат уходит в байты через UTF-8: код паттерна — 3 байта
+        List<String> patterns = PatternSubstitution.selectPatterns(data, 4, 8, 3, 3);
+        return PatternSubstitution.encode(data, patterns);
     }
     
     // Классы для хранения результатов
@@ -217,8 +238,18 @@ public class MultiLevelCompressor {
             this.totalRatio = totalRatio;
         }
         
+        // Размер и контрольная сумма исходных данных
+        public int originalSize() {
+            return levels.isEmpty() ? finalData.length : levels.get(0).inputSize;
+        }
+        
+        public int originalChecksum() {
+            return levels.isEmpty() ? checksum(finalData) : levels.get(0).inputCrc;
+        }
+        
+        // Архив с описанием уровней (см. MultiLevelArchive), его можно распаковать
         public void saveToFile(String filename) throws IOException {
-            Files.write(Paths.get(filename), finalData);
+            MultiLevelArchive.write(Paths.get(filename), this);
             System.out.println("✅ Данные сохранены в файл: " + filename);
         }
     }
@@ -230,16 +261,22 @@ public class MultiLevelCompressor {
         public final int outputSize;
         public final double ratio;
         public final DigitalGeologyCompressor.DataType dataType;
+        // Параметры обратного преобразования (ParamWriter) и CRC32 входа уровня
+        public final byte[] params;
+        public final int inputCrc;
         
         public CompressionLevel(int level, String transform, int inputSize,
                                int outputSize, double ratio,
-                               DigitalGeologyCompressor.DataType dataType) {
+                               DigitalGeologyCompressor.DataType dataType,
+                               byte[] params, int inputCrc) {
             this.level = level;
             this.transform = transform;
             this.inputSize = inputSize;
             this.outputSize = outputSize;
             this.ratio = ratio;
             this.dataType = dataType;
+            this.params = params;
+            this.inputCrc = inputCrc;
         }
         
         public void printStats() {
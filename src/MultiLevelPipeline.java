@@ -0,0 +1,268 @@
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import spi.ParamWriter;
+
+public class MultiLevelPipeline implements AutoCloseable {
+    
+    // Многоуровневое сжатие пачки файлов конвейером: анализ -> преобразование
+    // -> ZIP, между стадиями ограниченные очереди, у каждой стадии свой пул.
+    // После ZIP файл либо готов, либо возвращается на анализ следующего
+    // уровня — разные файлы одновременно находятся на разных стадиях.
+    // Из-за этого цикла число файлов в работе ограничено семафором не больше
+    // ёмкости очереди: put в следующую стадию никогда не ждёт вечно,
+    // а submit ждёт свободного места — это и есть обратное давление.
+    // Правила уровней те же, что в MultiLevelCompressor.compressMultiLevel
+    private final int maxLevels;
+    private volatile boolean closed;
+    private final Semaphore inFlight;
+    private final Stage analysis;
+    private final Stage transform;
+    private final Stage codec;
+    
+    public MultiLevelPipeline(int analysisWorkers, int transformWorkers, int codecWorkers,
+                              int queueCapacity, int maxLevels) {
+        this.maxLevels = maxLevels;
+        this.inFlight = new Semaphore(queueCapacity);
+        this.codec = new Stage("codec", codecWorkers, queueCapacity, this::compressLevel);
+        this.transform = new Stage("transform", transformWorkers, queueCapacity, job -> {
+            ParamWriter params = new ParamWriter();
+            job.transformed = MultiLevelCompressor.applyTransform(job.currentData, job.transformName, params);
+            job.params = params.toByteArray();
+            codec.put(job);
+        });
+        this.analysis = new Stage("analysis", analysisWorkers, queueCapacity, job -> {
+            job.level++;
+            job.analysis = DigitalGeologyCompressor.analyzePatterns(
+                new String(job.currentData, StandardCharsets.ISO_8859_1));
+            job.transformName = MultiLevelCompressor.selectTransformForLevel(job.analysis, job.level);
+            transform.put(job);
+        });
+    }
+    
+    public MultiLevelPipeline(int maxLevels) {
+        this(workers(), workers(), workers(), 4 * workers(), maxLevels);
+    }
+    
+    private static int workers() {
+        return Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    }
+    
+    // Ставит файл в конвейер; если в работе уже максимум файлов — ждёт
+    public CompletableFuture<MultiLevelCompressor.MultiLevelResult> submit(byte[] data)
+            throws InterruptedException {
+        if (closed) throw new IllegalStateException("Конвейер закрыт");
+        Job job = new Job(data);
+        if (maxLevels <= 0) {
+            job.future.complete(new MultiLevelCompressor.MultiLevelResult(data, job.levels, 1.0));
+            return job.future;
+        }
+        inFlight.acquire();
+        // Пока ждали места, конвейер могли закрыть
+        if (closed) {
+            inFlight.release();
+            throw new IllegalStateException("Конвейер закрыт");
+        }
+        analysis.put(job);
+        return job.future;
+    }
+    
+    // Сжимает всю пачку; результаты в порядке входа
+    public List<MultiLevelCompressor.MultiLevelResult> compressAll(List<byte[]> files)
+            throws InterruptedException {
+        List<CompletableFuture<MultiLevelCompressor.MultiLevelResult>> futures = new ArrayList<>();
+        for (byte[] file : files) {
+            futures.add(submit(file));
+        }
+        List<MultiLevelCompressor.MultiLevelResult> results = new ArrayList<>();
+        for (CompletableFuture<MultiLevelCompressor.MultiLevelResult> future : futures) {
+            results.add(future.join());
+        }
+        return results;
+    }
+    
+    // ZIP уровня и решение: следующий уровень или готово
+    private void compressLevel(Job job) {
+        if (!MultiLevelCompressor.worthCompressing(job.transformed, job.currentData.length, job.level)) {
+            finish(job);
+            return;
+        }
+        byte[] compressed = ZipCodec.DEFAULT.compress(job.transformed);
+        double ratio = (double) compressed.length / job.currentData.length;
+        MultiLevelCompressor.CompressionLevel level = new MultiLevelCompressor.CompressionLevel(
+            job.level, job.transformName, job.currentData.length,
+            compressed.length, ratio, job.analysis.dataType,
+            job.params, MultiLevelCompressor.checksum(job.currentData));
+        job.analysis = null;
+        job.transformed = null;
+        job.params = null;
+        
+        // Уровень без выигрыша не применяется
+        if (ratio >= MultiLevelCompressor.MIN_LEVEL_GAIN && job.level > 1) {
+            finish(job);
+            return;
+        }
+        job.levels.add(level);
+        job.currentData = compressed;
+        if (compressed.length < MultiLevelCompressor.MIN_SIZE || job.level >= maxLevels) {
+            finish(job);
+        } else {
+            analysis.put(job);
+        }
+    }
+    
+    private void finish(Job job) {
+        inFlight.release();
+        job.future.complete(new MultiLevelCompressor.MultiLevelResult(
+            job.currentData, job.levels, (double) job.currentData.length / job.data.length));
+    }
+    
+    public List<StageStats> stats() {
+        return List.of(analysis.stats(), transform.stats(), codec.stats());
+    }
+    
+    public void printStats() {
+        System.out.println("Стадия      очередь  занято  обработано  ср. время");
+        for (StageStats s : stats()) {
+            System.out.printf("%-10s %8d %4d/%-3d %10d %8.2f мс%n",
+                s.name, s.queueDepth, s.busyWorkers, s.workers, s.processed, s.averageServiceMillis);
+        }
+    }
+    
+    // Потоки стадий прерываются, файлы из очередей завершаются
+    // CancellationException — join на их future не зависнет. Файл, который
+    // стадия дообрабатывает в момент закрытия, отменяется при передаче дальше
+    @Override
+    public void close() {
+        closed = true;
+        analysis.shutdown();
+        transform.shutdown();
+        codec.shutdown();
+    }
+    
+    private void cancel(Job job) {
+        inFlight.release();
+        job.future.completeExceptionally(new CancellationException("Конвейер закрыт"));
+    }
+    
+    // Файл в работе: состояние текущего уровня переходит от стадии к стадии
+    private static class Job {
+        final byte[] data;
+        final List<MultiLevelCompressor.CompressionLevel> levels = new ArrayList<>();
+        final CompletableFuture<MultiLevelCompressor.MultiLevelResult> future = new CompletableFuture<>();
+        byte[] currentData;
+        int level;
+        DigitalGeologyCompressor.PatternAnalysis analysis;
+        String transformName;
+        byte[] transformed;
+        byte[] params;
+        
+        Job(byte[] data) {
+            this.data = data;
+            this.currentData = data;
+        }
+    }
+    
+    // Стадия: очередь, пул потоков и счётчики. Ошибка на файле завершает
+    // только его future
+    private class Stage {
+        private final String name;
+        private final int workers;
+        private final BlockingQueue<Job> queue;
+        private final ExecutorService pool;
+        private final AtomicLong processed = new AtomicLong();
+        private final AtomicLong serviceNanos = new AtomicLong();
+        private final AtomicInteger busy = new AtomicInteger();
+        
+        Stage(String name, int workers, int capacity, Consumer<Job> action) {
+            this.name = name;
+            this.workers = workers;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            this.pool = Executors.newFixedThreadPool(workers, r -> {
+                Thread thread = new Thread(r, "multilevel-" + name);
+                thread.setDaemon(true);
+                return thread;
+            });
+            for (int i = 0; i < workers; i++) {
+                pool.execute(() -> work(action));
+            }
+        }
+        
+        private void work(Consumer<Job> action) {
+            while (!Thread.currentThread().isInterrupted()) {
+                Job job;
+                try {
+                    job = queue.take();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                busy.incrementAndGet();
+                long start = System.nanoTime();
+                try {
+                    action.accept(job);
+                } catch (RuntimeException | Error e) {
+                    inFlight.release();
+                    job.future.completeExceptionally(e);
+                } finally {
+                    serviceNanos.addAndGet(System.nanoTime() - start);
+                    processed.incrementAndGet();
+                    busy.decrementAndGet();
+                }
+            }
+        }
+        
+        // Место в очереди есть всегда: файлов в работе не больше её ёмкости.
+        // Если close успел вычистить очередь раньше, файл снимаем сами
+        void put(Job job) {
+            if (!queue.offer(job)) {
+                throw new IllegalStateException("Очередь стадии " + name + " переполнена");
+            }
+            if (closed && queue.remove(job)) cancel(job);
+        }
+        
+        StageStats stats() {
+            long count = processed.get();
+            double average = count == 0 ? 0 : serviceNanos.get() / 1e6 / count;
+            return new StageStats(name, queue.size(), busy.get(), workers, count, average);
+        }
+        
+        void shutdown() {
+            pool.shutdownNow();
+            for (Job job; (job = queue.poll()) != null; ) {
+                cancel(job);
+            }
+        }
+    }
+    
+    // Снимок стадии: глубина очереди, занятые потоки, сколько обработано
+    // и среднее время одного прохода через стадию — по всем файлам
+    // и уровням вместе, без разбивки по уровням
+    public static class StageStats {
+        public final String name;
+        public final int queueDepth;
+        public final int busyWorkers;
+        public final int workers;
+        public final long processed;
+        public final double averageServiceMillis;
+        
+        StageStats(String name, int queueDepth, int busyWorkers, int workers,
+                   long processed, double averageServiceMillis) {
+            this.name = name;
+            this.queueDepth = queueDepth;
+            this.busyWorkers = busyWorkers;
+            this.workers = workers;
+            this.processed = processed;
+            this.averageServiceMillis = averageServiceMillis;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,104 @@
+import java.util.Arrays;
+
+public class NGramCounter {
+    
+    // Основание полиномиального хеша (нечётное, арифметика по модулю 2^64)
+    private static final long BASE = 0x100000001B3L;
+    
+    // Получатель повторов: длина, позиция первого вхождения и число вхождений
+    public interface RepeatConsumer {
+        void accept(int length, int firstPosition, int count);
+    }
+    
+    // Открытая адресация: хеш, первая позиция и счётчик в примитивных массивах
+    private final long[] hashes;
+    private final int[] first;
+    private final int[] counts;
+    private final int shift;
+    
+    private NGramCounter(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(16, expected * 2 - 1)) << 1;
+        this.hashes = new long[capacity];
+        this.first = new int[capacity];
+        this.counts = new int[capacity];
+        this.shift = 64 - Integer.numberOfTrailingZeros(capacity);
+    }
+    
+    // Подсчёт всех n-грамм длиной от minLength до maxLength скользящим хешем
+    // Рабина-Карпа. Для каждой n-граммы, встретившейся не меньше minCount раз,
+    // вызывается consumer: по возрастанию длины, внутри длины — по первому вхождению
+    public static void countRepeats(CharSequence data, int minLength, int maxLength,
+                                    int minCount, RepeatConsumer consumer) {
+        int n = data.length();
+        if (n < minLength) return;
+        NGramCounter table = new NGramCounter(n - minLength + 1);
+        for (int length = minLength; length <= maxLength && length <= n; length++) {
+            table.count(data, length);
+            table.report(length, minCount, consumer);
+        }
+    }
+    
+    private void count(CharSequence data, int length) {
+        Arrays.fill(counts, 0);
+        int n = data.length();
+        
+        // BASE^length для удаления уходящего символа
+        long power = 1;
+        long hash = 0;
+        for (int i = 0; i < length; i++) {
+            power *= BASE;
+            hash = hash * BASE + data.charAt(i);
+        }
+        
+        for (int i = 0; ; i++) {
+            insert(data, length, i, hash);
+            if (i + length >= n) break;
+            hash = hash * BASE + data.charAt(i + length) - power * data.charAt(i);
+        }
+    }
+    
+    // Совпадение хеша проверяется сравнением символов, поэтому коллизии
+    // не склеивают разные n-граммы
+    private void insert(CharSequence data, int length, int position, long hash) {
+        int mask = counts.length - 1;
+        int slot = (int) ((hash * 0x9E3779B97F4A7C15L) >>> shift);
+        while (counts[slot] != 0) {
+            if (hashes[slot] == hash && regionMatches(data, first[slot], position, length)) {
+                counts[slot]++;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        hashes[slot] = hash;
+        first[slot] = position;
+        counts[slot] = 1;
+    }
+    
+    // Отчёт в порядке первого вхождения
+    private void report(int length, int minCount, RepeatConsumer consumer) {
+        int found = 0;
+        for (int slot = 0; slot < counts.length; slot++) {
+            if (counts[slot] >= minCount) found++;
+        }
+        if (found == 0) return;
+        long[] order = new long[found];
+        int k = 0;
+        for (int slot = 0; slot < counts.length; slot++) {
+            if (counts[slot] >= minCount) {
+                order[k++] = (long) first[slot] << 32 | slot;
+            }
+        }
+        Arrays.sort(order);
+        for (long entry : order) {
+            int slot = (int) entry;
+            consumer.accept(length, first[slot], counts[slot]);
+        }
+    }
+    
+    private static boolean regionMatches(CharSequence data, int a, int b, int length) {
+        for (int i = 0; i < length; i++) {
+            if (data.charAt(a + i) != data.charAt(b + i)) return false;
+        }
+        return true;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,207 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class PatternDictionary implements AutoCloseable {
+    
+    // Формат файла:
+    //   заголовок: "PMPD", версия, число записей, число слотов (степень двойки)
+    //   индекс: слоты по 8 байт — старшие 32 бита хэша и смещение записи + 1
+    //           (0 — пустой слот), открытая адресация с линейным пробированием
+    //   записи: длина и байты сигнатуры (UTF-8), длина и байты метода,
+    //           длина и байты полезной нагрузки
+    // Файл целиком отображается в память, на куче лежат только несколько полей
+    private static final byte[] MAGIC = {'P', 'M', 'P', 'D'};
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int SLOT_SIZE = 8;
+    
+    private final FileChannel channel;
+    private final MappedByteBuffer map;
+    private final int count;
+    private final int mask;
+    private final int dataOffset;
+    
+    private PatternDictionary(FileChannel channel, MappedByteBuffer map) {
+        this.channel = channel;
+        this.map = map;
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (map.get(i) != MAGIC[i]) throw new IllegalArgumentException("Это не словарь паттернов");
+        }
+        if (map.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("Неподдерживаемая версия словаря: " + map.getInt(4));
+        }
+        this.count = map.getInt(8);
+        int slots = map.getInt(12);
+        if (slots <= 0 || Integer.bitCount(slots) != 1
+                || HEADER_SIZE + (long) slots * SLOT_SIZE > map.capacity()) {
+            throw new IllegalArgumentException("Повреждён индекс словаря");
+        }
+        this.mask = slots - 1;
+        this.dataOffset = HEADER_SIZE + slots * SLOT_SIZE;
+    }
+    
+    // Открывает словарь только для чтения. Размер файла ограничен 2 ГБ —
+    // столько адресует один MappedByteBuffer
+    public static PatternDictionary open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) throw new IOException("Словарь больше 2 ГБ: " + size);
+            return new PatternDictionary(channel, channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+    
+    public int size() {
+        return count;
+    }
+    
+    // Поиск по сигнатуре: хэш, пробирование слотов и побайтное сравнение
+    // ключа прямо в отображённом файле — O(длина сигнатуры), без загрузки
+    // записей на кучу. Отображение читается только абсолютными get,
+    // поэтому поиск можно вызывать из нескольких потоков. null — не найдено
+    public Entry lookup(String signature) {
+        byte[] key = signature.getBytes(StandardCharsets.UTF_8);
+        long hash = hash(key);
+        int tag = (int) (hash >>> 32);
+        for (int slot = (int) hash & mask, probes = 0; probes <= mask; slot = (slot + 1) & mask, probes++) {
+            int base = HEADER_SIZE + slot * SLOT_SIZE;
+            int offset = map.getInt(base + 4);
+            if (offset == 0) return null;
+            if (map.getInt(base) != tag) continue;
+            int record = dataOffset + offset - 1;
+            if (keyEquals(record, key)) return readEntry(record, key.length);
+        }
+        return null;
+    }
+    
+    public boolean contains(String signature) {
+        return lookup(signature) != null;
+    }
+    
+    private boolean keyEquals(int record, byte[] key) {
+        if (map.getInt(record) != key.length) return false;
+        int from = record + 4;
+        for (int i = 0; i < key.length; i++) {
+            if (map.get(from + i) != key[i]) return false;
+        }
+        return true;
+    }
+    
+    private Entry readEntry(int record, int keyLength) {
+        int methodAt = record + 4 + keyLength;
+        int methodLength = map.getInt(methodAt);
+        byte[] method = new byte[methodLength];
+        map.get(methodAt + 4, method);
+        int payloadAt = methodAt + 4 + methodLength;
+        int payloadLength = map.getInt(payloadAt);
+        ByteBuffer payload = map.slice(payloadAt + 4, payloadLength).asReadOnlyBuffer();
+        return new Entry(new String(method, StandardCharsets.UTF_8), payload);
+    }
+    
+    // Отображение освобождается сборщиком мусора, закрывается только канал
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+    
+    // FNV-1a, 64 бита: младшие биты — номер слота, старшие — метка в индексе
+    private static long hash(byte[] key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key) {
+            h ^= b & 0xFF;
+            h *= 0x100000001b3L;
+        }
+        return h ^ (h >>> 29);
+    }
+    
+    // Запись словаря: метод обработки и полезная нагрузка (вид только для
+    // чтения на отображённый файл, вне кучи)
+    public static class Entry {
+        public final String method;
+        private final ByteBuffer payload;
+        
+        Entry(String method, ByteBuffer payload) {
+            this.method = method;
+            this.payload = payload;
+        }
+        
+        public ByteBuffer payload() {
+            return payload.duplicate();
+        }
+    }
+    
+    // Сборка файла словаря: записи копятся в памяти и пишутся одним
+    // проходом; при повторной сигнатуре остаётся последняя запись
+    public static class Builder {
+        private final List<byte[][]> records = new ArrayList<>();
+        private final Map<String, Integer> index = new HashMap<>();
+        
+        public Builder put(String signature, String method, byte[] payload) {
+            byte[][] record = {
+                signature.getBytes(StandardCharsets.UTF_8),
+                method.getBytes(StandardCharsets.UTF_8),
+                payload.clone()
+            };
+            Integer at = index.putIfAbsent(signature, records.size());
+            if (at == null) {
+                records.add(record);
+            } else {
+                records.set(at, record);
+            }
+            return this;
+        }
+        
+        public Builder put(String signature, String method) {
+            return put(signature, method, new byte[0]);
+        }
+        
+        public void write(Path file) throws IOException {
+            int slots = Integer.highestOneBit(Math.max(1, records.size()) * 2 - 1) << 1;
+            long dataSize = 0;
+            for (byte[][] record : records) {
+                dataSize += 12L + record[0].length + record[1].length + record[2].length;
+            }
+            long total = HEADER_SIZE + (long) slots * SLOT_SIZE + dataSize;
+            if (total > Integer.MAX_VALUE) throw new IOException("Словарь больше 2 ГБ: " + total);
+            
+            ByteBuffer head = ByteBuffer.allocate(HEADER_SIZE + slots * SLOT_SIZE);
+            head.put(MAGIC).putInt(VERSION).putInt(records.size()).putInt(slots);
+            ByteBuffer data = ByteBuffer.allocate((int) dataSize);
+            int mask = slots - 1;
+            for (byte[][] record : records) {
+                long hash = hash(record[0]);
+                int slot = (int) hash & mask;
+                while (head.getInt(HEADER_SIZE + slot * SLOT_SIZE + 4) != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                head.putInt(HEADER_SIZE + slot * SLOT_SIZE, (int) (hash >>> 32));
+                head.putInt(HEADER_SIZE + slot * SLOT_SIZE + 4, data.position() + 1);
+                for (byte[] part : record) {
+                    data.putInt(part.length).put(part);
+                }
+            }
+            head.position(0).limit(head.capacity());
+            data.flip();
+            
+            try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer[] parts = {head, data};
+                while (head.hasRemaining() || data.hasRemaining()) {
+                    out.write(parts);
+                }
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,278 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class PatternSubstitution {
+    
+    // Коды паттернов — символы области частного использования U+E000..U+F8FE,
+    // U+F8FF экранирует такие же символы в самих данных
+    private static final char CODE_BASE = '\uE000';
+    private static final char ESCAPE = '\uF8FF';
+    public static final int MAX_PATTERNS = ESCAPE - CODE_BASE;
+    
+    // Выбор паттернов: n-граммы длиной minLength..maxLength, встречающиеся
+    // не реже minCount раз, по убыванию выгоды
+    // count * (len - codeCost) минус место в словаре (len + 1).
+    // codeCost — сколько единиц выхода занимает код паттерна у того,
+    // кто хранит результат: 1 для строки, 3 для UTF-8 (коды — U+E000+)
+    public static List<String> selectPatterns(CharSequence data, int minLength, int maxLength, int minCount,
+                                              int codeCost) {
+        List<long[]> found = new ArrayList<>();
+        NGramCounter.countRepeats(data, minLength, maxLength, minCount, (length, position, count) -> {
+            long saving = saving(count, length, codeCost);
+            if (saving > 0) found.add(new long[] {saving, length, position});
+        });
+        found.sort((a, b) -> a[0] != b[0] ? Long.compare(b[0], a[0]) : Long.compare(a[2], b[2]));
+        
+        List<String> candidates = new ArrayList<>();
+        for (int i = 0; i < Math.min(MAX_PATTERNS, found.size()); i++) {
+            int length = (int) found.get(i)[1];
+            int position = (int) found.get(i)[2];
+            candidates.add(data.subSequence(position, position + length).toString());
+        }
+        if (candidates.isEmpty()) return candidates;
+        
+        // Счёт n-грамм не учитывает, что паттерны перекрываются и отбирают
+        // вхождения друг у друга: пересчитываем реальные замены и
+        // оставляем только окупившиеся паттерны
+        int[] used = new int[candidates.size()];
+        scan(data.toString(), new Automaton(candidates), maxLength(candidates),
+            (start, end, pattern) -> used[pattern]++);
+        List<String> patterns = new ArrayList<>();
+        for (int i = 0; i < candidates.size(); i++) {
+            if (saving(used[i], candidates.get(i).length(), codeCost) > 0) patterns.add(candidates.get(i));
+        }
+        return patterns;
+    }
+    
+    public static List<String> selectPatterns(CharSequence data, int minLength, int maxLength, int minCount) {
+        return selectPatterns(data, minLength, maxLength, minCount, 1);
+    }
+    
+    private static long saving(long count, int length, int codeCost) {
+        return count * (length - codeCost) - (length + 1);
+    }
+    
+    // Замена всех паттернов за один проход автоматом Ахо-Корасик.
+    // Среди пересекающихся вхождений берётся самое левое, при равном
+    // начале — самое длинное. Результат: словарь (число паттернов, затем
+    // длина и символы каждого) и тело с кодами вместо вхождений
+    public static String encode(String data, List<String> patterns) {
+        if (patterns.size() > MAX_PATTERNS) {
+            throw new IllegalArgumentException("Слишком много паттернов: " + patterns.size());
+        }
+        StringBuilder out = new StringBuilder(data.length() + 16);
+        out.append((char) patterns.size());
+        int maxLength = 0;
+        for (String pattern : patterns) {
+            if (pattern.isEmpty() || pattern.length() > Character.MAX_VALUE) {
+                throw new IllegalArgumentException("Недопустимая длина паттерна: " + pattern.length());
+            }
+            out.append((char) pattern.length()).append(pattern);
+            maxLength = Math.max(maxLength, pattern.length());
+        }
+        if (patterns.isEmpty()) {
+            appendEscaped(out, data, 0, data.length());
+            return out.toString();
+        }
+        
+        int[] emitted = {0};
+        scan(data, new Automaton(patterns), maxLength, (start, end, pattern) -> {
+            appendEscaped(out, data, emitted[0], start);
+            out.append((char) (CODE_BASE + pattern));
+            emitted[0] = end;
+        });
+        appendEscaped(out, data, emitted[0], data.length());
+        return out.toString();
+    }
+    
+    private interface MatchSink {
+        void match(int start, int end, int pattern);
+    }
+    
+    private static int maxLength(List<String> patterns) {
+        int maxLength = 0;
+        for (String pattern : patterns) maxLength = Math.max(maxLength, pattern.length());
+        return maxLength;
+    }
+    
+    // Проход автоматом: вхождения без перекрытий, слева направо
+    private static void scan(String data, Automaton automaton, int maxLength, MatchSink sink) {
+        int n = data.length();
+        int state = 0;
+        int bestStart = -1;
+        int bestEnd = -1;
+        int bestPattern = -1;
+        int i = 0;
+        while (true) {
+            boolean atEnd = i >= n;
+            if (!atEnd) {
+                state = automaton.step(state, data.charAt(i));
+                // Все паттерны, оканчивающиеся в i: сам узел и цепочка
+                // словарных суффиксных ссылок
+                int node = automaton.terminal[state] >= 0 ? state : automaton.dictLink[state];
+                while (node >= 0) {
+                    int start = i + 1 - automaton.depth[node];
+                    if (bestStart < 0 || start < bestStart) {
+                        bestStart = start;
+                        bestEnd = i + 1;
+                        bestPattern = automaton.terminal[node];
+                    } else if (start == bestStart && i + 1 > bestEnd) {
+                        bestEnd = i + 1;
+                        bestPattern = automaton.terminal[node];
+                    }
+                    node = automaton.dictLink[node];
+                }
+            }
+            // Вхождение фиксируется, когда левее или длиннее уже не найти
+            if (bestStart >= 0 && (atEnd || i + 1 - bestStart >= maxLength)) {
+                sink.match(bestStart, bestEnd, bestPattern);
+                i = bestEnd;
+                state = 0;
+                bestStart = -1;
+                continue;
+            }
+            if (atEnd) break;
+            i++;
+        }
+    }
+    
+    public static String decode(String encoded) {
+        if (encoded.isEmpty()) throw new IllegalArgumentException("Нет словаря паттернов");
+        int count = encoded.charAt(0);
+        String[] patterns = new String[count];
+        int pos = 1;
+        for (int p = 0; p < count; p++) {
+            if (pos >= encoded.length()) throw new IllegalArgumentException("Словарь паттернов обрезан");
+            int length = encoded.charAt(pos++);
+            if (pos + length > encoded.length()) throw new IllegalArgumentException("Словарь паттернов обрезан");
+            patterns[p] = encoded.substring(pos, pos + length);
+            pos += length;
+        }
+        
+        StringBuilder out = new StringBuilder(encoded.length() * 2);
+        for (int i = pos; i < encoded.length(); i++) {
+            char c = encoded.charAt(i);
+            if (c == ESCAPE) {
+                if (++i == encoded.length()) throw new IllegalArgumentException("Оборванное экранирование");
+                out.append(encoded.charAt(i));
+            } else if (c >= CODE_BASE && c < ESCAPE) {
+                int index = c - CODE_BASE;
+                if (index >= count) throw new IllegalArgumentException("Неизвестный код паттерна: " + index);
+                out.append(patterns[index]);
+            } else {
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+    
+    private static void appendEscaped(StringBuilder out, String data, int from, int to) {
+        for (int i = from; i < to; i++) {
+            char c = data.charAt(i);
+            if (c >= CODE_BASE && c <= ESCAPE) out.append(ESCAPE);
+            out.append(c);
+        }
+    }
+    
+    // Автомат Ахо-Корасик: переходы бора в хеш-таблице (узел, символ) -> узел,
+    // суффиксные ссылки и словарные ссылки на ближайший суффикс-паттерн
+    private static class Automaton {
+        final int[] depth;
+        final int[] terminal;
+        final int[] dictLink;
+        private final int[] fail;
+        private final long[] keys;
+        private final int[] children;
+        private final int mask;
+        
+        Automaton(List<String> patterns) {
+            int maxNodes = 1;
+            for (String pattern : patterns) maxNodes += pattern.length();
+            depth = new int[maxNodes];
+            terminal = new int[maxNodes];
+            dictLink = new int[maxNodes];
+            fail = new int[maxNodes];
+            Arrays.fill(terminal, -1);
+            int capacity = Integer.highestOneBit(Math.max(16, maxNodes * 2 - 1)) << 1;
+            keys = new long[capacity];
+            children = new int[capacity];
+            Arrays.fill(keys, -1);
+            mask = capacity - 1;
+            
+            // Бор; первым пришёл — тот и хозяин кода для повторного паттерна
+            int nodes = 1;
+            int[] firstChild = new int[maxNodes];
+            int[] nextSibling = new int[maxNodes];
+            char[] label = new char[maxNodes];
+            Arrays.fill(firstChild, -1);
+            for (int p = 0; p < patterns.size(); p++) {
+                String pattern = patterns.get(p);
+                int node = 0;
+                for (int i = 0; i < pattern.length(); i++) {
+                    char c = pattern.charAt(i);
+                    int child = child(node, c);
+                    if (child < 0) {
+                        child = nodes++;
+                        depth[child] = depth[node] + 1;
+                        label[child] = c;
+                        nextSibling[child] = firstChild[node];
+                        firstChild[node] = child;
+                        put(node, c, child);
+                    }
+                    node = child;
+                }
+                if (terminal[node] < 0) terminal[node] = p;
+            }
+            
+            // Суффиксные ссылки обходом в ширину
+            int[] queue = new int[nodes];
+            int head = 0;
+            int tail = 0;
+            dictLink[0] = -1;
+            for (int child = firstChild[0]; child >= 0; child = nextSibling[child]) {
+                fail[child] = 0;
+                dictLink[child] = -1;
+                queue[tail++] = child;
+            }
+            while (head < tail) {
+                int node = queue[head++];
+                for (int child = firstChild[node]; child >= 0; child = nextSibling[child]) {
+                    int f = step(fail[node], label[child]);
+                    fail[child] = f;
+                    dictLink[child] = terminal[f] >= 0 ? f : dictLink[f];
+                    queue[tail++] = child;
+                }
+            }
+        }
+        
+        int step(int state, char c) {
+            while (true) {
+                int child = child(state, c);
+                if (child >= 0) return child;
+                if (state == 0) return 0;
+                state = fail[state];
+            }
+        }
+        
+        private int child(int node, char c) {
+            long key = (long) node << 16 | c;
+            for (int slot = slot(key); ; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) return children[slot];
+                if (keys[slot] == -1) return -1;
+            }
+        }
+        
+        private void put(int node, char c, int child) {
+            long key = (long) node << 16 | c;
+            int slot = slot(key);
+            while (keys[slot] != -1) slot = (slot + 1) & mask;
+            keys[slot] = key;
+            children[slot] = child;
+        }
+        
+        private int slot(long key) {
+            return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+        }
+    }
+}
\ No newline at end of file
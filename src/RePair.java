@@ -0,0 +1,372 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import spi.ParamReader;
+import spi.ParamWriter;
+
+public class RePair {
+    
+    // Грамматическое сжатие Re-Pair (Ларссон-Моффат): пока есть пара
+    // соседних символов, встречающаяся хотя бы дважды, самая частая пара
+    // заменяется новым правилом X -> ab.
+    // Последовательность — массив с двусвязным списком живых позиций,
+    // вхождения каждой пары — в своём связном списке, пары лежат
+    // в корзинах по числу вхождений. Новая пара всегда содержит только
+    // что созданный символ и встречается не чаще заменённой, поэтому
+    // указатель на самую полную корзину только убывает — всё линейно.
+    // maxRules ограничивает размер грамматики (и память под правила)
+    public static Grammar compress(CharSequence input, int maxRules) {
+        int n = input.length();
+        // Терминалы — номера символов в отсортированном алфавите
+        char[] alphabet = alphabet(input);
+        int[] code = new int[Character.MAX_VALUE + 1];
+        for (int i = 0; i < alphabet.length; i++) code[alphabet[i]] = i;
+        
+        State state = new State(n);
+        for (int i = 0; i < n; i++) state.seq[i] = code[input.charAt(i)];
+        for (int i = 0; i + 1 < n; i++) state.addOccurrence(i);
+        
+        int[] rules = new int[16];
+        int ruleCount = 0;
+        int top = state.buckets.length - 1;
+        while (ruleCount < maxRules) {
+            while (top >= 2 && state.buckets[top] < 0) top--;
+            if (top < 2) break;
+            int pair = state.buckets[top];
+            int left = state.left[pair];
+            int right = state.right[pair];
+            int symbol = alphabet.length + ruleCount;
+            if (2 * ruleCount + 2 > rules.length) rules = Arrays.copyOf(rules, rules.length * 2);
+            rules[2 * ruleCount] = left;
+            rules[2 * ruleCount + 1] = right;
+            ruleCount++;
+            state.replace(pair, symbol);
+        }
+        
+        int length = 0;
+        for (int i = state.first; i >= 0; i = state.next[i]) length++;
+        int[] sequence = new int[length];
+        int k = 0;
+        for (int i = state.first; i >= 0; i = state.next[i]) sequence[k++] = state.seq[i];
+        return new Grammar(alphabet, Arrays.copyOf(rules, 2 * ruleCount), sequence);
+    }
+    
+    public static Grammar compress(CharSequence input) {
+        return compress(input, Integer.MAX_VALUE);
+    }
+    
+    // Строковая форма для цепочек преобразований: байты грамматики
+    // как символы 0..255
+    public static String encode(String data) {
+        return new String(compress(data).toBytes(), StandardCharsets.ISO_8859_1);
+    }
+    
+    public static String decode(String encoded) {
+        return Grammar.fromBytes(encoded.getBytes(StandardCharsets.ISO_8859_1)).expand();
+    }
+    
+    private static char[] alphabet(CharSequence input) {
+        boolean[] seen = new boolean[Character.MAX_VALUE + 1];
+        int size = 0;
+        for (int i = 0; i < input.length(); i++) {
+            if (!seen[input.charAt(i)]) {
+                seen[input.charAt(i)] = true;
+                size++;
+            }
+        }
+        char[] alphabet = new char[size];
+        int k = 0;
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            if (seen[c]) alphabet[k++] = (char) c;
+        }
+        return alphabet;
+    }
+    
+    // Рабочее состояние: последовательность, списки вхождений и очередь пар
+    private static class State {
+        final int[] seq;
+        final int[] next;
+        final int[] prev;
+        int first;
+        // Для каждой позиции: пара, которая с неё начинается, и соседи
+        // в списке вхождений этой пары
+        final int[] occurrencePair;
+        final int[] occurrenceNext;
+        final int[] occurrencePrev;
+        
+        // Пары: символы, число вхождений, голова списка вхождений,
+        // соседи в корзине
+        int[] left = new int[64];
+        int[] right = new int[64];
+        int[] count = new int[64];
+        int[] head = new int[64];
+        int[] bucketNext = new int[64];
+        int[] bucketPrev = new int[64];
+        int pairs;
+        final int[] buckets;
+        final PairTable table = new PairTable();
+        
+        State(int n) {
+            seq = new int[n];
+            next = new int[n];
+            prev = new int[n];
+            for (int i = 0; i < n; i++) {
+                next[i] = i + 1 < n ? i + 1 : -1;
+                prev[i] = i - 1;
+            }
+            first = n > 0 ? 0 : -1;
+            occurrencePair = new int[n];
+            occurrenceNext = new int[n];
+            occurrencePrev = new int[n];
+            Arrays.fill(occurrencePair, -1);
+            buckets = new int[n / 2 + 2];
+            Arrays.fill(buckets, -1);
+        }
+        
+        // Вхождение пары, начинающейся в i. Для пар вида aa вхождения
+        // в серии не должны перекрываться: учтённое вхождение слева
+        // блокирует это
+        void addOccurrence(int i) {
+            int j = next[i];
+            if (j < 0) return;
+            int pair = pairOf(seq[i], seq[j]);
+            if (seq[i] == seq[j] && prev[i] >= 0 && occurrencePair[prev[i]] == pair) return;
+            occurrencePair[i] = pair;
+            occurrencePrev[i] = -1;
+            occurrenceNext[i] = head[pair];
+            if (head[pair] >= 0) occurrencePrev[head[pair]] = i;
+            head[pair] = i;
+            setCount(pair, count[pair] + 1);
+        }
+        
+        void removeOccurrence(int i) {
+            int pair = occurrencePair[i];
+            if (pair < 0) return;
+            if (occurrencePrev[i] >= 0) {
+                occurrenceNext[occurrencePrev[i]] = occurrenceNext[i];
+            } else {
+                head[pair] = occurrenceNext[i];
+            }
+            if (occurrenceNext[i] >= 0) occurrencePrev[occurrenceNext[i]] = occurrencePrev[i];
+            occurrencePair[i] = -1;
+            setCount(pair, count[pair] - 1);
+            
+            // В серии aaa вхождение справа было заблокировано этим —
+            // теперь оно не перекрывается и учитывается
+            int j = next[i];
+            if (left[pair] == right[pair] && j >= 0 && occurrencePair[j] < 0) {
+                int k = next[j];
+                if (k >= 0 && seq[j] == left[pair] && seq[k] == left[pair]) addOccurrence(j);
+            }
+        }
+        
+        // Замена всех вхождений пары новым символом. Соседние пары
+        // пересчитываются; пары с новым символом сразу попадают в очередь
+        void replace(int pair, int symbol) {
+            int i;
+            while ((i = head[pair]) >= 0) {
+                int j = next[i];
+                int before = prev[i];
+                int after = next[j];
+                // Порядок важен: снятие вхождения может вернуть в список
+                // соседнее справа, и j должен уйти последним
+                if (before >= 0) removeOccurrence(before);
+                removeOccurrence(i);
+                removeOccurrence(j);
+                
+                seq[i] = symbol;
+                next[i] = after;
+                if (after >= 0) prev[after] = i;
+                
+                if (before >= 0) addOccurrence(before);
+                if (after >= 0) addOccurrence(i);
+            }
+        }
+        
+        private int pairOf(int a, int b) {
+            long key = (long) a << 32 | (b & 0xFFFFFFFFL);
+            int pair = table.get(key);
+            if (pair >= 0) return pair;
+            if (pairs == left.length) {
+                int size = pairs * 2;
+                left = Arrays.copyOf(left, size);
+                right = Arrays.copyOf(right, size);
+                count = Arrays.copyOf(count, size);
+                head = Arrays.copyOf(head, size);
+                bucketNext = Arrays.copyOf(bucketNext, size);
+                bucketPrev = Arrays.copyOf(bucketPrev, size);
+            }
+            pair = pairs++;
+            left[pair] = a;
+            right[pair] = b;
+            head[pair] = -1;
+            table.put(key, pair);
+            return pair;
+        }
+        
+        // Перекладывает пару в корзину её нового числа вхождений;
+        // пары, встречающиеся реже двух раз, в очереди не держим
+        private void setCount(int pair, int value) {
+            int old = count[pair];
+            if (old >= 2) {
+                if (bucketPrev[pair] >= 0) {
+                    bucketNext[bucketPrev[pair]] = bucketNext[pair];
+                } else {
+                    buckets[old] = bucketNext[pair];
+                }
+                if (bucketNext[pair] >= 0) bucketPrev[bucketNext[pair]] = bucketPrev[pair];
+            }
+            count[pair] = value;
+            if (value >= 2) {
+                bucketPrev[pair] = -1;
+                bucketNext[pair] = buckets[value];
+                if (buckets[value] >= 0) bucketPrev[buckets[value]] = pair;
+                buckets[value] = pair;
+            }
+        }
+    }
+    
+    // Открытая адресация: пара символов (long) -> номер пары
+    private static class PairTable {
+        private long[] keys = new long[1024];
+        private int[] values = new int[1024];
+        private boolean[] used = new boolean[1024];
+        private int size;
+        
+        int get(long key) {
+            int mask = keys.length - 1;
+            for (int slot = slot(key, mask); used[slot]; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) return values[slot];
+            }
+            return -1;
+        }
+        
+        void put(long key, int value) {
+            if (2 * (size + 1) > keys.length) grow();
+            int mask = keys.length - 1;
+            int slot = slot(key, mask);
+            while (used[slot]) slot = (slot + 1) & mask;
+            used[slot] = true;
+            keys[slot] = key;
+            values[slot] = value;
+            size++;
+        }
+        
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            boolean[] oldUsed = used;
+            keys = new long[oldKeys.length * 2];
+            values = new int[oldKeys.length * 2];
+            used = new boolean[oldKeys.length * 2];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldUsed[i]) put(oldKeys[i], oldValues[i]);
+            }
+        }
+        
+        private static int slot(long key, int mask) {
+            return (int) ((key * 0x9E3779B97F4A7C15L) >>> 40) & mask;
+        }
+    }
+    
+    // Грамматика: алфавит терминалов, правила (пара символов на правило)
+    // и стартовая последовательность. Символ s < alphabet.length —
+    // терминал alphabet[s], иначе правило s - alphabet.length
+    public static class Grammar {
+        public final char[] alphabet;
+        public final int[] rules;
+        public final int[] sequence;
+        
+        public Grammar(char[] alphabet, int[] rules, int[] sequence) {
+            this.alphabet = alphabet;
+            this.rules = rules;
+            this.sequence = sequence;
+        }
+        
+        public int ruleCount() {
+            return rules.length / 2;
+        }
+        
+        // Разворачивает грамматику явным стеком: глубина правил может быть
+        // сравнима с длиной текста
+        public String expand() {
+            return expandUpTo(Integer.MAX_VALUE - 8);
+        }
+        
+        // Развёртка известной длины: маленькая грамматика не раздуется
+        // в гигабайты — длиннее expectedLength не разворачиваем
+        public String expand(int expectedLength) {
+            if (expectedLength < 0) throw new IllegalArgumentException("Отрицательная длина: " + expectedLength);
+            String text = expandUpTo(expectedLength);
+            if (text.length() != expectedLength) {
+                throw new IllegalArgumentException("Грамматика короче ожидаемого: " + text.length());
+            }
+            return text;
+        }
+        
+        private String expandUpTo(int limit) {
+            StringBuilder out = new StringBuilder();
+            int[] stack = new int[16];
+            for (int start : sequence) {
+                int top = 0;
+                stack[top++] = start;
+                while (top > 0) {
+                    int symbol = stack[--top];
+                    if (symbol < alphabet.length) {
+                        if (out.length() == limit) throw new IllegalArgumentException("Грамматика длиннее ожидаемого");
+                        out.append(alphabet[symbol]);
+                        continue;
+                    }
+                    int rule = symbol - alphabet.length;
+                    if (top + 2 > stack.length) stack = Arrays.copyOf(stack, stack.length * 2);
+                    stack[top++] = rules[2 * rule + 1];
+                    stack[top++] = rules[2 * rule];
+                }
+            }
+            return out.toString();
+        }
+        
+        // Двоичная форма: алфавит (разностями), правила, последовательность —
+        // всё varint через ParamWriter
+        public byte[] toBytes() {
+            ParamWriter out = new ParamWriter();
+            out.writeInt(alphabet.length);
+            for (char c : alphabet) out.writePosition(c);
+            out.writeInt(ruleCount());
+            for (int symbol : rules) out.writeInt(symbol);
+            out.writeInt(sequence.length);
+            for (int symbol : sequence) out.writeInt(symbol);
+            return out.toByteArray();
+        }
+        
+        // Правило может ссылаться только на терминалы и более ранние
+        // правила — это проверяется, иначе развёртка могла бы зациклиться
+        public static Grammar fromBytes(byte[] bytes) {
+            ParamReader in = new ParamReader(bytes);
+            int alphabetSize = in.readInt();
+            if (alphabetSize < 0 || alphabetSize > Character.MAX_VALUE + 1) throw new IllegalArgumentException("Повреждён алфавит");
+            char[] alphabet = new char[alphabetSize];
+            for (int i = 0; i < alphabetSize; i++) {
+                int c = in.readPosition();
+                if (c < 0 || c > Character.MAX_VALUE) throw new IllegalArgumentException("Повреждён алфавит");
+                alphabet[i] = (char) c;
+            }
+            int ruleCount = in.readInt();
+            if (ruleCount < 0 || ruleCount > bytes.length) throw new IllegalArgumentException("Повреждены правила");
+            int[] rules = new int[2 * ruleCount];
+            for (int i = 0; i < rules.length; i++) {
+                rules[i] = in.readInt();
+                if (rules[i] < 0) throw new IllegalArgumentException("Повреждены правила");
+                if (rules[i] >= alphabetSize + i / 2) throw new IllegalArgumentException("Правило ссылается вперёд");
+            }
+            int length = in.readInt();
+            if (length < 0 || length > bytes.length) throw new IllegalArgumentException("Повреждена последовательность");
+            int[] sequence = new int[length];
+            for (int i = 0; i < length; i++) {
+                sequence[i] = in.readInt();
+                if (sequence[i] < 0 || sequence[i] >= alphabetSize + ruleCount) throw new IllegalArgumentException("Неизвестный символ");
+            }
+            return new Grammar(alphabet, rules, sequence);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,105 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class RepeatMiner {
+    
+    // Все максимальные повторы строки длиной от minLength, встречающиеся
+    // не меньше minCount раз. Суффиксный массив + LCP (Касаи), затем обход
+    // LCP-интервалов стеком: каждый интервал — узел суффиксного дерева,
+    // то есть повтор, который нельзя продлить вправо. Повтор оставляем,
+    // если его нельзя продлить и влево (символы перед вхождениями различны).
+    // Время O(n) после построения массивов; позиции вычисляются лениво
+    public static List<Repeat> maximalRepeats(String data, int minLength, int minCount) {
+        if (minCount < 2) {
+            throw new IllegalArgumentException("Повтор — это минимум 2 вхождения: " + minCount);
+        }
+        int n = data.length();
+        List<Repeat> repeats = new ArrayList<>();
+        if (n < 2) return repeats;
+        
+        int[] s = SuffixArray.toRanks(data);
+        int upper = 0;
+        for (int v : s) upper = Math.max(upper, v);
+        int[] sa = SuffixArray.build(s, upper);
+        int[] lcp = SuffixArray.lcp(s, sa);
+        
+        // Левая различимость интервала за O(1): префиксные суммы
+        // смен символа перед суффиксом и суффиксов без левого соседа
+        int[] changes = new int[n + 1];
+        int[] starts = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            int left = sa[i] > 0 ? s[sa[i] - 1] : -1;
+            int prevLeft = i > 0 ? (sa[i - 1] > 0 ? s[sa[i - 1] - 1] : -1) : left;
+            changes[i + 1] = changes[i] + (left != prevLeft ? 1 : 0);
+            starts[i + 1] = starts[i] + (left == -1 ? 1 : 0);
+        }
+        
+        // Стек открытых интервалов: глубина (длина повтора) и левая граница
+        int[] stackLcp = new int[n + 1];
+        int[] stackLb = new int[n + 1];
+        int top = 0;
+        stackLcp[0] = 0;
+        stackLb[0] = 0;
+        
+        for (int i = 1; i <= n; i++) {
+            int current = i < n ? lcp[i] : 0;
+            int lb = i - 1;
+            while (current < stackLcp[top]) {
+                int length = stackLcp[top];
+                lb = stackLb[top];
+                top--;
+                int rb = i - 1;
+                int count = rb - lb + 1;
+                boolean leftMaximal = changes[rb + 1] - changes[lb + 1] > 0
+                    || starts[rb + 1] - starts[lb] > 0;
+                if (length >= minLength && count >= minCount && leftMaximal) {
+                    repeats.add(new Repeat(data, sa, lb, length, count));
+                }
+            }
+            if (current > stackLcp[top]) {
+                top++;
+                stackLcp[top] = current;
+                stackLb[top] = lb;
+            }
+        }
+        return repeats;
+    }
+    
+    // Максимальный повтор: интервал [lb, lb + count) суффиксного массива
+    public static class Repeat {
+        public final int length;
+        public final int count;
+        
+        private final String source;
+        private final int[] sa;
+        private final int lb;
+        private int[] positions;
+        
+        Repeat(String source, int[] sa, int lb, int length, int count) {
+            this.source = source;
+            this.sa = sa;
+            this.lb = lb;
+            this.length = length;
+            this.count = count;
+        }
+        
+        public String getPattern() {
+            return source.substring(sa[lb], sa[lb] + length);
+        }
+        
+        // Позиции вхождений по возрастанию (вхождения могут перекрываться)
+        public int[] getPositions() {
+            if (positions == null) {
+                positions = Arrays.copyOfRange(sa, lb, lb + count);
+                Arrays.sort(positions);
+            }
+            return positions.clone();
+        }
+        
+        // Сколько символов покрывают все вхождения вместе
+        public long coverage() {
+            return (long) length * count;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,217 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.ToLongFunction;
+
+public class RunFinder {
+    
+    // Разделитель в склейках для Z-функции, не совпадает ни с одним символом
+    private static final int SEPARATOR = -1;
+    
+    // Все максимальные периодические участки (runs) строки.
+    // Алгоритм Мейна-Лоренца: делим строку пополам, тандемные повторы,
+    // пересекающие середину, находим четырьмя Z-функциями, остальное —
+    // рекурсивно. Для каждого центра получаем не отдельные квадраты,
+    // а сразу отрезок их начал, поэтому фрагментов O(n log n).
+    // Фрагменты с одним периодом затем склеиваются в максимальные участки.
+    // Периоды не обязательно примитивные: участок с периодом p
+    // даёт и участок с периодом 2p, если в нём хватает повторов
+    public static List<Run> findRuns(CharSequence input) {
+        int n = input.length();
+        int[] s = new int[n];
+        for (int i = 0; i < n; i++) {
+            s[i] = input.charAt(i);
+        }
+        return findRuns(s);
+    }
+    
+    // Байты как символы 0..255
+    public static List<Run> findRuns(byte[] input, int offset, int length) {
+        int[] s = new int[length];
+        for (int i = 0; i < length; i++) {
+            s[i] = input[offset + i] & 0xFF;
+        }
+        return findRuns(s);
+    }
+    
+    private static List<Run> findRuns(int[] s) {
+        Fragments fragments = new Fragments();
+        findRepetitions(s, 0, s.length, fragments);
+        return fragments.merge(s.length);
+    }
+    
+    // Жадный выбор непересекающихся участков: сначала самые выгодные,
+    // участки без выгоды отбрасываются. Каждый выбранный участок обрезается
+    // до целого числа периодов; результат упорядочен по началу
+    public static List<Run> selectCycles(List<Run> runs, ToLongFunction<Run> saving) {
+        List<Run> candidates = new ArrayList<>(runs);
+        candidates.sort((a, b) -> Long.compare(saving.applyAsLong(b), saving.applyAsLong(a)));
+        
+        TreeMap<Integer, Run> chosen = new TreeMap<>();
+        for (Run run : candidates) {
+            if (saving.applyAsLong(run) <= 0) break;
+            int start = run.start;
+            int end = start + run.period * run.repeats();
+            Map.Entry<Integer, Run> before = chosen.floorEntry(start);
+            if (before != null && before.getValue().end > start) continue;
+            Integer after = chosen.ceilingKey(start);
+            if (after != null && after < end) continue;
+            chosen.put(start, new Run(start, end, run.period));
+        }
+        return new ArrayList<>(chosen.values());
+    }
+    
+    private static void findRepetitions(int[] s, int from, int to, Fragments out) {
+        int n = to - from;
+        if (n <= 1) return;
+        int nu = n / 2;
+        int nv = n - nu;
+        int mid = from + nu;
+        findRepetitions(s, from, mid, out);
+        findRepetitions(s, mid, to, out);
+        
+        // ru — развёрнутая левая половина, rv — развёрнутая правая
+        int[] ru = new int[nu];
+        for (int i = 0; i < nu; i++) ru[i] = s[mid - 1 - i];
+        int[] v = Arrays.copyOfRange(s, mid, to);
+        
+        int[] z1 = zFunction(ru);
+        int[] z2 = zFunction(concat(v, Arrays.copyOfRange(s, from, mid)));
+        int[] rurv = new int[nu + 1 + nv];
+        System.arraycopy(ru, 0, rurv, 0, nu);
+        rurv[nu] = SEPARATOR;
+        for (int i = 0; i < nv; i++) rurv[nu + 1 + i] = s[to - 1 - i];
+        int[] z3 = zFunction(rurv);
+        int[] z4 = zFunction(v);
+        
+        for (int center = 0; center < n; center++) {
+            boolean left = center < nu;
+            int l;
+            int k1;
+            int k2;
+            if (left) {
+                l = nu - center;
+                k1 = at(z1, nu - center);
+                k2 = at(z2, nv + 1 + center);
+            } else {
+                l = center - nu + 1;
+                k1 = at(z3, nu + 1 + nv - 1 - (center - nu));
+                k2 = at(z4, center - nu + 1);
+            }
+            if (k1 + k2 < l) continue;
+            
+            // Допустимые длины левой части квадрата: [lo1, hi1]
+            int lo1 = Math.max(1, l - k2);
+            int hi1 = Math.min(l, k1);
+            if (left && hi1 == l) hi1--;
+            if (lo1 > hi1) continue;
+            
+            // Начала квадратов длины 2l идут подряд, их объединение
+            // периодично с периодом l
+            int firstStart = left ? center - hi1 : center - l - hi1 + 1;
+            int lastStart = left ? center - lo1 : center - l - lo1 + 1;
+            out.add(l, from + firstStart, from + lastStart + 2 * l);
+        }
+    }
+    
+    // Z-функция: z[i] — длина общего префикса s и s[i..]
+    static int[] zFunction(int[] s) {
+        int n = s.length;
+        int[] z = new int[n];
+        for (int i = 1, l = 0, r = 0; i < n; i++) {
+            if (i < r) z[i] = Math.min(r - i, z[i - l]);
+            while (i + z[i] < n && s[z[i]] == s[i + z[i]]) z[i]++;
+            if (i + z[i] > r) {
+                l = i;
+                r = i + z[i];
+            }
+        }
+        return z;
+    }
+    
+    private static int at(int[] z, int i) {
+        return i >= 0 && i < z.length ? z[i] : 0;
+    }
+    
+    private static int[] concat(int[] a, int[] b) {
+        int[] r = new int[a.length + 1 + b.length];
+        System.arraycopy(a, 0, r, 0, a.length);
+        r[a.length] = SEPARATOR;
+        System.arraycopy(b, 0, r, a.length + 1, b.length);
+        return r;
+    }
+    
+    // Фрагменты периодических участков: период и отрезок [lo, hi)
+    private static class Fragments {
+        private int[] periods = new int[64];
+        private long[] spans = new long[64];
+        private int size;
+        
+        void add(int period, int lo, int hi) {
+            if (size == periods.length) {
+                periods = Arrays.copyOf(periods, size * 2);
+                spans = Arrays.copyOf(spans, size * 2);
+            }
+            periods[size] = period;
+            spans[size] = (long) lo << 32 | hi;
+            size++;
+        }
+        
+        // Сортировка подсчётом по периоду, внутри периода — по (lo, hi);
+        // фрагменты с перекрытием не меньше периода лежат в одном участке
+        List<Run> merge(int n) {
+            int maxPeriod = n / 2 + 1;
+            int[] bucket = new int[maxPeriod + 2];
+            for (int i = 0; i < size; i++) bucket[periods[i] + 1]++;
+            for (int p = 0; p <= maxPeriod; p++) bucket[p + 1] += bucket[p];
+            long[] sorted = new long[size];
+            int[] next = Arrays.copyOf(bucket, bucket.length);
+            for (int i = 0; i < size; i++) {
+                sorted[next[periods[i]]++] = spans[i];
+            }
+            
+            List<Run> runs = new ArrayList<>();
+            for (int p = 1; p <= maxPeriod; p++) {
+                int from = bucket[p];
+                int to = bucket[p + 1];
+                if (from == to) continue;
+                Arrays.sort(sorted, from, to);
+                int lo = (int) (sorted[from] >>> 32);
+                int hi = (int) sorted[from];
+                for (int i = from + 1; i < to; i++) {
+                    int nextLo = (int) (sorted[i] >>> 32);
+                    int nextHi = (int) sorted[i];
+                    if (nextLo <= hi - p) {
+                        hi = Math.max(hi, nextHi);
+                    } else {
+                        runs.add(new Run(lo, hi, p));
+                        lo = nextLo;
+                        hi = nextHi;
+                    }
+                }
+                runs.add(new Run(lo, hi, p));
+            }
+            return runs;
+        }
+    }
+    
+    // Максимальный участок [start, end) с периодом period (end - start >= 2 * period)
+    public static class Run {
+        public final int start;
+        public final int end;
+        public final int period;
+        
+        public Run(int start, int end, int period) {
+            this.start = start;
+            this.end = end;
+            this.period = period;
+        }
+        
+        // Сколько целых периодов помещается в участок
+        public int repeats() {
+            return (end - start) / period;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,198 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class SelectionCache {
+    
+    private static final int MAGIC = 0x504D5343; // "PMSC"
+    private static final int VERSION = 1;
+    
+    // По умолчанию кэш занимает не больше ~16 МБ
+    public static final long DEFAULT_MAX_BYTES = 16L << 20;
+    
+    // LRU по порядку доступа: при переполнении вытесняется давно
+    // не использованная запись. Предел — и число записей, и примерный
+    // вес в байтах (длинные списки паттернов весят больше).
+    // Все обращения под монитором кэша
+    private final LinkedHashMap<Key, Selection> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final int maxEntries;
+    private final long maxBytes;
+    private long bytes;
+    private long hits;
+    private long misses;
+    
+    public SelectionCache(int maxEntries, long maxBytes) {
+        if (maxEntries <= 0 || maxBytes <= 0) throw new IllegalArgumentException("Размер кэша должен быть положительным");
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+    
+    public SelectionCache(int maxEntries) {
+        this(maxEntries, DEFAULT_MAX_BYTES);
+    }
+    
+    // Ключ — 128-битный хэш содержимого; seed отделяет разные настройки
+    // сжатия для одних и тех же данных
+    public static Key key(byte[] content, long seed) {
+        long[] h = Hash128.murmur3(content, 0, content.length, seed);
+        return new Key(h[0], h[1]);
+    }
+    
+    // Строка хэшируется по 16-битным кодам символов прямо на месте;
+    // ключ тот же, что у её байтов UTF-16LE
+    public static Key key(CharSequence content, long seed) {
+        long[] h = Hash128.murmur3(content, seed);
+        return new Key(h[0], h[1]);
+    }
+    
+    public synchronized Selection get(Key key) {
+        Selection selection = entries.get(key);
+        if (selection == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return selection;
+    }
+    
+    // Запись тяжелее всего кэша не сохраняется
+    public synchronized void put(Key key, Selection selection) {
+        Selection previous = selection.weight > maxBytes ? entries.remove(key) : entries.put(key, selection);
+        if (previous != null) bytes -= previous.weight;
+        if (selection.weight > maxBytes) return;
+        bytes += selection.weight;
+        Iterator<Selection> eldest = entries.values().iterator();
+        while (entries.size() > maxEntries || bytes > maxBytes) {
+            bytes -= eldest.next().weight;
+            eldest.remove();
+        }
+    }
+    
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+    
+    public synchronized int size() {
+        return entries.size();
+    }
+    
+    // Примерный вес всех записей в байтах
+    public synchronized long weight() {
+        return bytes;
+    }
+    
+    public synchronized long getHits() {
+        return hits;
+    }
+    
+    public synchronized long getMisses() {
+        return misses;
+    }
+    
+    // Снимок на диск: записи от старых к свежим, чтобы после загрузки
+    // порядок вытеснения сохранился
+    public void save(Path file) throws IOException {
+        List<Map.Entry<Key, Selection>> copy;
+        synchronized (this) {
+            copy = new ArrayList<>(entries.entrySet());
+        }
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(copy.size());
+            for (Map.Entry<Key, Selection> e : copy) {
+                out.writeLong(e.getKey().high);
+                out.writeLong(e.getKey().low);
+                Selection selection = e.getValue();
+                out.writeInt(selection.compressedSize);
+                out.writeInt(selection.patterns.size());
+                for (String pattern : selection.patterns) {
+                    out.writeUTF(pattern);
+                }
+            }
+        }
+    }
+    
+    // Загрузка снимка поверх текущих записей; возвращает число записей
+    public int load(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) throw new IOException("Это не снимок кэша выбора");
+            int version = in.readInt();
+            if (version != VERSION) throw new IOException("Неподдерживаемая версия снимка: " + version);
+            int count = in.readInt();
+            if (count < 0) throw new IOException("Повреждён снимок кэша");
+            Map<Key, Selection> loaded = new LinkedHashMap<>();
+            for (int i = 0; i < count; i++) {
+                Key key = new Key(in.readLong(), in.readLong());
+                int compressedSize = in.readInt();
+                int patterns = in.readInt();
+                if (patterns < 0) throw new IOException("Повреждён снимок кэша");
+                List<String> list = new ArrayList<>(Math.min(patterns, 64));
+                for (int p = 0; p < patterns; p++) {
+                    list.add(in.readUTF());
+                }
+                loaded.put(key, new Selection(list, compressedSize));
+            }
+            synchronized (this) {
+                for (Map.Entry<Key, Selection> e : loaded.entrySet()) {
+                    put(e.getKey(), e.getValue());
+                }
+            }
+            return count;
+        }
+    }
+    
+    public static final class Key {
+        public final long high;
+        public final long low;
+        
+        public Key(long high, long low) {
+            this.high = high;
+            this.low = low;
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return high == other.high && low == other.low;
+        }
+        
+        @Override
+        public int hashCode() {
+            return (int) (high ^ high >>> 32);
+        }
+    }
+    
+    // Запомненный выбор: последовательность паттернов и итоговый размер
+    public static class Selection {
+        public final List<String> patterns;
+        public final int compressedSize;
+        // Примерный размер на куче вместе с ключом и узлом карты:
+        // заголовки объектов и по два байта на символ
+        final long weight;
+        
+        public Selection(List<String> patterns, int compressedSize) {
+            this.patterns = Collections.unmodifiableList(new ArrayList<>(patterns));
+            this.compressedSize = compressedSize;
+            long weight = 128 + 8L * patterns.size();
+            for (String pattern : patterns) {
+                weight += 48 + 2L * pattern.length();
+            }
+            this.weight = weight;
+        }
+    }
+}
\ No newline at end of file
@@ -34,40 +34,41 @@ public class SelfDescribingTransform {
     
     // 1. Сортировка с встроенной перестановкой
     private static String sortEmbedded(String input) {
-        // Создаем пары (символ, позиция)
-        List<Pair> pairs = new ArrayList<>();
-        for (int i = 0; i < input.length(); i++) {
-            pairs.add(new Pair(input.charAt(i), i));
+        // Позиция хранится в одном char: длиннее 0xFFFF не кодируем
+        // (для больших данных есть BinaryTransform)
+        if (input.length() > 0xFFFF) {
+            return input;
         }
         
-        // Сортируем по символу
-        pairs.sort((a, b) -> Character.compare(a.ch, b.ch));
+        // Устойчивая сортировка подсчётом: место каждого символа в результате
+        int n = input.length();
+        int[] rank = TransformKernels.stableSortRanks(input, TransformKernels.histogram(input));
         
         // Собираем результат: префикс + отсортированные символы + позиции
-        StringBuilder sorted = new StringBuilder();
-        StringBuilder positions = new StringBuilder();
-        
-        for (Pair p : pairs) {
-            sorted.append(p.ch);
-            positions.append((char) p.pos); // Сохраняем позицию как char
+        char[] out = new char[2 * n + 6];
+        "SORT|".getChars(0, 5, out, 0);
+        out[5 + n] = '|';
+        for (int i = 0; i < n; i++) {
+            out[5 + rank[i]] = input.charAt(i);
+            out[6 + n + rank[i]] = (char) i; // Сохраняем позицию как char
         }
         
-        return "SORT|" + sorted.toString() + "|" + positions.toString();
+        return new String(out);
     }
     
     private static String extractSorted(String embedded) {
-        // Формат: SORT|отсортированные_символы|позиции
-        String[] parts = embedded.split("\\|", 3);
-        if (parts.length < 3) return embedded;
-        
-        String sorted = parts[1];
-        String positions = parts[2];
+        // Формат: SORT|отсортированные_символы|позиции, обе части длины n.
+        // Длина известна заранее, поэтому '|' внутри данных не мешает
+        int n = (embedded.length() - 6) / 2;
+        if (n < 0 || embedded.length() != 2 * n + 6 || embedded.charAt(5 + n) != '|') {
+            return embedded;
+        }
         
         // Восстанавливаем исходный порядок
-        char[] result = new char[sorted.length()];
-        for (int i = 0; i < sorted.length(); i++) {
-            int pos = positions.charAt(i);
-            result[pos] = sorted.charAt(i);
+        char[] result = new char[n];
+        for (int i = 0; i < n; i++) {
+            int pos = embedded.charAt(6 + n + i);
+            result[pos] = embedded.charAt(5 + i);
         }
         
         return new String(result);
@@ -75,47 +76,46 @@ public class SelfDescribingTransform {
     
     // 2. Группировка по частоте с встроенной частотной таблицей
     private static String frequencyGroupEmbedded(String input) {
-        // Считаем частоты
-        Map<Character, Integer> freq = new HashMap<>();
-        for (char c : input.toCharArray()) {
-            freq.put(c, freq.getOrDefault(c, 0) + 1);
-        }
-        
-        // Сортируем символы по частоте (часто встречающиеся первыми)
-        List<Character> chars = new ArrayList<>(freq.keySet());
-        chars.sort((a, b) -> Integer.compare(freq.get(b), freq.get(a)));
-        
-        // Создаем строку: символы по частоте + исходные данные с заменой на индексы
-        StringBuilder header = new StringBuilder();
-        for (char c : chars) {
-            header.append(c);
-        }
+        // Символы по частоте (часто встречающиеся первыми) и прямая таблица рангов
+        int[] counts = TransformKernels.histogram(input);
+        char[] header = TransformKernels.symbolsByFrequency(counts);
+        char[] rank = TransformKernels.rankTable(header, counts.length);
         
-        // Кодируем данные: заменяем символы на их позиции в header
-        StringBuilder encoded = new StringBuilder();
-        for (char c : input.toCharArray()) {
-            int index = chars.indexOf(c);
-            encoded.append((char) index); // Сохраняем индекс как char
+        // Строка: длина заголовка (char) + символы по частоте + исходные
+        // данные с заменой на индексы. Длина в одном char: если встречаются
+        // все 65536 символов, не кодируем
+        int n = input.length();
+        int k = header.length;
+        if (k > 0xFFFF) return input;
+        char[] out = new char[7 + k + n];
+        "FREQ|".getChars(0, 5, out, 0);
+        out[5] = (char) k;
+        System.arraycopy(header, 0, out, 6, k);
+        out[6 + k] = '|';
+        for (int i = 0; i < n; i++) {
+            out[7 + k + i] = rank[input.charAt(i)]; // Сохраняем индекс как char
         }
         
-        return "FREQ|" + header.toString() + "|" + encoded.toString();
+        return new String(out);
     }
     
     private static String extractFrequency(String embedded) {
-        String[] parts = embedded.split("\\|", 3);
-        if (parts.length < 3) return embedded;
+        // Формат: FREQ|, длина заголовка k, k символов, '|', индексы.
+        // Заголовок читается по длине, поэтому '|' среди символов не мешает
+        if (embedded.length() < 7) return embedded;
+        int k = embedded.charAt(5);
+        int separator = 6 + k;
+        if (embedded.length() <= separator || embedded.charAt(separator) != '|') return embedded;
         
-        String header = parts[1];
-        String encoded = parts[2];
-        
-        // Восстанавливаем
-        StringBuilder result = new StringBuilder();
-        for (int i = 0; i < encoded.length(); i++) {
-            int index = encoded.charAt(i);
-            result.append(header.charAt(index));
+        // Восстанавливаем без промежуточных копий частей
+        char[] result = new char[embedded.length() - separator - 1];
+        for (int i = 0; i < result.length; i++) {
+            int index = embedded.charAt(separator + 1 + i);
+            if (index >= k) return embedded;
+            result[i] = embedded.charAt(6 + index);
         }
         
-        return result.toString();
+        return new String(result);
     }
     
     // 3. RLE с автоматическим определением порога
@@ -168,71 +168,70 @@ public class SelfDescribingTransform {
         return result.toString();
     }
     
-    // 4. Циклический паттерн (обнаружение и кодирование циклов)
+    // 4. Циклические паттерны: все периодические участки находятся
+    // алгоритмом Мейна-Лоренца за O(n log n), затем жадно выбираются
+    // непересекающиеся участки с наибольшей экономией.
+    // Формат: CYC|k|начало,период,повторы;...|тело — в теле от каждого
+    // участка остаётся один период, начало — позиция в исходной строке
     private static String patternCycleEmbedded(String input) {
-        // Ищем самый длинный повторяющийся паттерн
-        String bestPattern = "";
-        int bestLength = 0;
+        List<RunFinder.Run> chosen = RunFinder.selectCycles(
+            RunFinder.findRuns(input), SelfDescribingTransform::cycleSaving);
         
-        for (int patternLen = 1; patternLen <= input.length() / 2; patternLen++) {
-            for (int start = 0; start <= input.length() - patternLen * 2; start++) {
-                String pattern = input.substring(start, start + patternLen);
-                int repeats = countRepeats(input, start, pattern);
-                
-                if (repeats > 1 && patternLen * repeats > bestLength) {
-                    bestLength = patternLen * repeats;
-                    bestPattern = pattern;
-                }
-            }
+        if (chosen.isEmpty()) {
+            return input;
         }
         
-        if (bestPattern.length() > 3) {
-            // Кодируем: паттерн и сколько раз его повторить
-            int totalRepeats = bestLength / bestPattern.length();
-            return "CYC|" + bestPattern + "|" + totalRepeats + "|" + 
-                   input.replace(bestPattern.repeat(totalRepeats), "");
+        StringBuilder header = new StringBuilder();
+        StringBuilder body = new StringBuilder(input.length());
+        int pos = 0;
+        for (RunFinder.Run run : chosen) {
+            if (header.length() > 0) header.append(';');
+            header.append(run.start).append(',').append(run.period).append(',').append(run.repeats());
+            body.append(input, pos, run.start + run.period);
+            pos = run.end;
         }
+        body.append(input, pos, input.length());
         
-        return input;
+        return "CYC|" + chosen.size() + "|" + header + "|" + body;
     }
     
-    private static int countRepeats(String input, int start, String pattern) {
-        int count = 0;
-        int pos = start;
-        int patternLen = pattern.length();
-        
-        while (pos + patternLen <= input.length()) {
-            if (input.substring(pos, pos + patternLen).equals(pattern)) {
-                count++;
-                pos += patternLen;
-            } else {
-                break;
-            }
-        }
-        
-        return count;
+    // Сколько символов убирает участок с учётом записи в заголовке
+    private static long cycleSaving(RunFinder.Run run) {
+        int descriptor = String.valueOf(run.start).length()
+            + String.valueOf(run.period).length()
+            + String.valueOf(run.repeats()).length() + 3;
+        return (long) run.period * (run.repeats() - 1) - descriptor;
     }
     
     private static String extractCycle(String embedded) {
         String[] parts = embedded.split("\\|", 4);
         if (parts.length < 4) return embedded;
         
-        String pattern = parts[1];
-        int repeats = Integer.parseInt(parts[2]);
-        String remainder = parts[3];
-        
-        return pattern.repeat(repeats) + remainder;
-    }
-    
-    // Вспомогательный класс
-    private static class Pair {
-        char ch;
-        int pos;
+        int count = Integer.parseInt(parts[1]);
+        String[] cycles = count == 0 ? new String[0] : parts[2].split(";");
+        String body = parts[3];
         
-        Pair(char ch, int pos) {
-            this.ch = ch;
-            this.pos = pos;
+        StringBuilder result = new StringBuilder();
+        int pos = 0;
+        for (String cycle : cycles) {
+            String[] fields = cycle.split(",");
+            int start = Integer.parseInt(fields[0]);
+            int period = Integer.parseInt(fields[1]);
+            int repeats = Integer.parseInt(fields[2]);
+            
+            // Копируем тело до участка, затем разворачиваем период
+            int before = start - result.length();
+            result.append(body, pos, pos + before);
+            pos += before;
+            String unit = body.substring(pos, pos + period);
+            pos += period;
+            for (int r = 0; r < repeats; r++) {
+                result.append(unit);
+            }
         }
+        result.append(body, pos, body.length());
+        
+        return result.toString();
     }
     
     // Тест всех преобразований
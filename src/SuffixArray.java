@@ -0,0 +1,203 @@
+import java.util.Arrays;
+
+public class SuffixArray {
+    
+    // Маленькие входы проще отсортировать напрямую
+    private static final int NAIVE_THRESHOLD = 10;
+    
+    // Суффиксный массив для байтов (алфавит 0..255)
+    public static int[] build(byte[] data) {
+        int[] s = new int[data.length];
+        for (int i = 0; i < data.length; i++) {
+            s[i] = data[i] & 0xFF;
+        }
+        return build(s, 255);
+    }
+    
+    // Суффиксный массив для строки: символы сжимаются в плотный алфавит
+    public static int[] build(String data) {
+        int[] s = toRanks(data);
+        int upper = 0;
+        for (int v : s) upper = Math.max(upper, v);
+        return build(s, upper);
+    }
+    
+    // Переводит символы строки в плотные ранги 0..k-1 (порядок сохраняется)
+    static int[] toRanks(String data) {
+        int n = data.length();
+        boolean[] present = new boolean[Character.MAX_VALUE + 1];
+        for (int i = 0; i < n; i++) {
+            present[data.charAt(i)] = true;
+        }
+        int[] rank = new int[Character.MAX_VALUE + 1];
+        int next = 0;
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            if (present[c]) rank[c] = next++;
+        }
+        int[] s = new int[n];
+        for (int i = 0; i < n; i++) {
+            s[i] = rank[data.charAt(i)];
+        }
+        return s;
+    }
+    
+    // SA-IS: линейное построение суффиксного массива.
+    // Значения s[i] должны лежать в диапазоне 0..upper.
+    public static int[] build(int[] s, int upper) {
+        int n = s.length;
+        if (n == 0) return new int[0];
+        if (n == 1) return new int[]{0};
+        if (n == 2) return s[0] < s[1] ? new int[]{0, 1} : new int[]{1, 0};
+        if (n < NAIVE_THRESHOLD) return naive(s);
+        
+        int[] sa = new int[n];
+        boolean[] ls = new boolean[n];
+        for (int i = n - 2; i >= 0; i--) {
+            ls[i] = (s[i] == s[i + 1]) ? ls[i + 1] : (s[i] < s[i + 1]);
+        }
+        
+        // Границы корзин для L- и S-суффиксов
+        int[] sumL = new int[upper + 2];
+        int[] sumS = new int[upper + 2];
+        for (int i = 0; i < n; i++) {
+            if (!ls[i]) {
+                sumS[s[i]]++;
+            } else {
+                sumL[s[i] + 1]++;
+            }
+        }
+        for (int i = 0; i <= upper; i++) {
+            sumS[i] += sumL[i];
+            if (i < upper) sumL[i + 1] += sumS[i];
+        }
+        
+        // LMS-позиции в порядке следования
+        int[] lmsMap = new int[n + 1];
+        Arrays.fill(lmsMap, -1);
+        int m = 0;
+        for (int i = 1; i < n; i++) {
+            if (!ls[i - 1] && ls[i]) {
+                lmsMap[i] = m++;
+            }
+        }
+        int[] lms = new int[m];
+        for (int i = 1, k = 0; i < n; i++) {
+            if (!ls[i - 1] && ls[i]) {
+                lms[k++] = i;
+            }
+        }
+        
+        int[] buf = new int[upper + 2];
+        induce(s, sa, ls, lms, m, sumL, sumS, buf, upper);
+        
+        if (m > 0) {
+            // Отсортированные LMS-подстроки получают имена для рекурсии
+            int[] sortedLms = new int[m];
+            int k = 0;
+            for (int v : sa) {
+                if (lmsMap[v] != -1) sortedLms[k++] = v;
+            }
+            int[] recS = new int[m];
+            int recUpper = 0;
+            recS[lmsMap[sortedLms[0]]] = 0;
+            for (int i = 1; i < m; i++) {
+                int l = sortedLms[i - 1];
+                int r = sortedLms[i];
+                int endL = (lmsMap[l] + 1 < m) ? lms[lmsMap[l] + 1] : n;
+                int endR = (lmsMap[r] + 1 < m) ? lms[lmsMap[r] + 1] : n;
+                boolean same = true;
+                if (endL - l != endR - r) {
+                    same = false;
+                } else {
+                    while (l < endL) {
+                        if (s[l] != s[r]) break;
+                        l++;
+                        r++;
+                    }
+                    if (l == n || s[l] != s[r]) same = false;
+                }
+                if (!same) recUpper++;
+                recS[lmsMap[sortedLms[i]]] = recUpper;
+            }
+            
+            int[] recSa = build(recS, recUpper);
+            for (int i = 0; i < m; i++) {
+                sortedLms[i] = lms[recSa[i]];
+            }
+            induce(s, sa, ls, sortedLms, m, sumL, sumS, buf, upper);
+        }
+        return sa;
+    }
+    
+    // LCP-массив алгоритмом Касаи: lcp[i] — длина общего префикса
+    // суффиксов sa[i - 1] и sa[i], lcp[0] = 0
+    public static int[] lcp(int[] s, int[] sa) {
+        int n = s.length;
+        int[] rank = new int[n];
+        for (int i = 0; i < n; i++) {
+            rank[sa[i]] = i;
+        }
+        int[] lcp = new int[n];
+        int h = 0;
+        for (int i = 0; i < n; i++) {
+            if (h > 0) h--;
+            if (rank[i] == 0) {
+                h = 0;
+                continue;
+            }
+            int j = sa[rank[i] - 1];
+            while (i + h < n && j + h < n && s[i + h] == s[j + h]) {
+                h++;
+            }
+            lcp[rank[i]] = h;
+        }
+        return lcp;
+    }
+    
+    // Индуцированная сортировка L- и S-суффиксов по расставленным LMS
+    private static void induce(int[] s, int[] sa, boolean[] ls, int[] lms, int m,
+                               int[] sumL, int[] sumS, int[] buf, int upper) {
+        int n = s.length;
+        Arrays.fill(sa, -1);
+        System.arraycopy(sumS, 0, buf, 0, upper + 1);
+        for (int i = 0; i < m; i++) {
+            int d = lms[i];
+            if (d == n) continue;
+            sa[buf[s[d]]++] = d;
+        }
+        System.arraycopy(sumL, 0, buf, 0, upper + 1);
+        sa[buf[s[n - 1]]++] = n - 1;
+        for (int i = 0; i < n; i++) {
+            int v = sa[i];
+            if (v >= 1 && !ls[v - 1]) {
+                sa[buf[s[v - 1]]++] = v - 1;
+            }
+        }
+        System.arraycopy(sumL, 0, buf, 0, upper + 1);
+        for (int i = n - 1; i >= 0; i--) {
+            int v = sa[i];
+            if (v >= 1 && ls[v - 1]) {
+                sa[--buf[s[v - 1] + 1]] = v - 1;
+            }
+        }
+    }
+    
+    private static int[] naive(int[] s) {
+        int n = s.length;
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> {
+            if (a.intValue() == b.intValue()) return 0;
+            int x = a, y = b;
+            while (x < n && y < n) {
+                if (s[x] != s[y]) return Integer.compare(s[x], s[y]);
+                x++;
+                y++;
+            }
+            return x == n ? -1 : 1;
+        });
+        int[] sa = new int[n];
+        for (int i = 0; i < n; i++) sa[i] = order[i];
+        return sa;
+    }
+}
\ No newline at end of file
@@ -1,10 +1,7 @@
-import java.io.ByteArrayOutputStream;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.zip.GZIPOutputStream;
 
 public class TransformCompressor {
     
@@ -67,15 +64,12 @@ public class TransformCompressor {
     
     // Метод для сжатия ZIP
     public byte[] compressZip(String input) {
-        try {
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            try (GZIPOutputStream gzos = new GZIPOutputStream(baos)) {
-                gzos.write(input.getBytes(StandardCharsets.UTF_8));
-            }
-            return baos.toByteArray();
-        } catch (Exception e) {
-            return new byte[0];
-        }
+        return ZipCodec.DEFAULT.compress(input);
+    }
+    
+    // Только размер после ZIP, без копии результата
+    public int compressedSize(String input) {
+        return ZipCodec.DEFAULT.compressedSize(input);
     }
     
     // Основной тест
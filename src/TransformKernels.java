@@ -0,0 +1,73 @@
+import java.util.Arrays;
+
+public class TransformKernels {
+    
+    // Гистограмма символов: int[256], если все символы меньше 256,
+    // иначе int[65536]
+    public static int[] histogram(CharSequence data) {
+        int n = data.length();
+        int[] counts = new int[256];
+        for (int i = 0; i < n; i++) {
+            char c = data.charAt(i);
+            if (c >= 256) {
+                int[] wide = new int[Character.MAX_VALUE + 1];
+                System.arraycopy(counts, 0, wide, 0, 256);
+                for (int j = i; j < n; j++) {
+                    wide[data.charAt(j)]++;
+                }
+                return wide;
+            }
+            counts[c]++;
+        }
+        return counts;
+    }
+    
+    // Устойчивая сортировка подсчётом без перестановки элементов:
+    // rank[i] — место data[i] в отсортированной строке. Начала групп
+    // берутся из префиксных сумм гистограммы, равные символы сохраняют
+    // исходный порядок. Обратная перестановка — это просто rank
+    public static int[] stableSortRanks(CharSequence data, int[] counts) {
+        int n = data.length();
+        int[] next = new int[counts.length];
+        int sum = 0;
+        for (int c = 0; c < counts.length; c++) {
+            next[c] = sum;
+            sum += counts[c];
+        }
+        int[] rank = new int[n];
+        for (int i = 0; i < n; i++) {
+            rank[i] = next[data.charAt(i)]++;
+        }
+        return rank;
+    }
+    
+    // Встреченные символы по убыванию частоты, при равенстве — по коду
+    public static char[] symbolsByFrequency(int[] counts) {
+        int present = 0;
+        for (int count : counts) {
+            if (count > 0) present++;
+        }
+        long[] keys = new long[present];
+        int k = 0;
+        for (int c = 0; c < counts.length; c++) {
+            if (counts[c] > 0) {
+                keys[k++] = (long) (Integer.MAX_VALUE - counts[c]) << 16 | c;
+            }
+        }
+        Arrays.sort(keys);
+        char[] symbols = new char[present];
+        for (int i = 0; i < present; i++) {
+            symbols[i] = (char) (keys[i] & 0xFFFF);
+        }
+        return symbols;
+    }
+    
+    // Прямая таблица символ -> ранг размером с алфавит (256 или 65536)
+    public static char[] rankTable(char[] symbols, int alphabet) {
+        char[] rank = new char[alphabet];
+        for (int r = 0; r < symbols.length; r++) {
+            rank[symbols[r]] = (char) r;
+        }
+        return rank;
+    }
+}
\ No newline at end of file
@@ -1,4 +1,8 @@
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class TransformLibrary {
     
@@ -21,75 +25,105 @@ public class TransformLibrary {
         public int getTotalSize() {
             return compressedSize + extraDataSize;
         }
+        
+        TransformResult withCompressedSize(int size) {
+            return new TransformResult(name, transformed, size, extraDataSize, params);
+        }
     }
     
+    // Ограниченный пул для параллельной оценки кандидатов
+    private static final ExecutorService CANDIDATE_POOL = Executors.newFixedThreadPool(
+        Math.max(1, Math.min(8, Runtime.getRuntime().availableProcessors())), r -> {
+            Thread thread = new Thread(r, "transform-candidates");
+            thread.setDaemon(true);
+            return thread;
+        });
+    
+    // Кандидаты образуют маленький граф: BWT считается один раз и служит
+    // общим префиксом для веток "BWT" и "BWT+MTF", независимые ветки
+    // преобразуются и сжимаются параллельно. Порядок результатов прежний.
     public static List<TransformResult> applyReversibleTransforms(String input, TransformCompressor compressor) {
         List<TransformResult> results = new ArrayList<>();
+        List<Candidate> candidates = prepareCandidates(input);
+        List<CompletableFuture<TransformResult>> compressed = new ArrayList<>();
+        for (Candidate candidate : candidates) {
+            compressed.add(candidate.prepared.thenApplyAsync(r ->
+                r.withCompressedSize(compressor.compressedSize(r.transformed)), CANDIDATE_POOL));
+        }
+        for (int i = 0; i < candidates.size(); i++) {
+            collect(results, candidates.get(i).name, compressed.get(i), candidates.get(i).optional);
+        }
+        return results;
+    }
+    
+    // Подготовка кандидатов без сжатия (compressedSize = 0)
+    private static List<Candidate> prepareCandidates(String input) {
+        List<Candidate> candidates = new ArrayList<>();
+        
+        // Общий промежуточный результат
+        CompletableFuture<BWTTransformer.BWTResult> bwt =
+            CompletableFuture.supplyAsync(() -> BWTTransformer.forwardBWT(input), CANDIDATE_POOL);
         
         // 1. BWT преобразование
-        try {
-            BWTTransformer.BWTResult bwtResult = BWTTransformer.forwardBWT(input);
-            byte[] bwtCompressed = compressor.compressZip(bwtResult.transformed);
-            // Для BWT нужно хранить индекс (4 байта) + возможно словарь
-            results.add(new TransformResult("BWT", bwtResult.transformed, bwtCompressed.length, 4,
-                Map.of("index", bwtResult.index)));
-        } catch (Exception e) {
-            System.out.println("BWT failed: " + e.getMessage());
-        }
+        // Для BWT нужно хранить индекс (4 байта) + возможно словарь
+        candidates.add(new Candidate("BWT", true, bwt.thenApply(bwtResult ->
+            new TransformResult("BWT", bwtResult.transformed, 0, 4,
+                Map.of("index", bwtResult.index)))));
         
         // 2. Move-To-Front (MTF) после BWT
-        try {
-            BWTTransformer.BWTResult bwt = BWTTransformer.forwardBWT(input);
-            String mtf = applyMTF(bwt.transformed);
-            byte[] mtfCompressed = compressor.compressZip(mtf);
-            // Нужно хранить: BWT-индекс (4 байта) + MTF-словарь (максимум 256 байт, но можно сжать)
-            results.add(new TransformResult("BWT+MTF", mtf, mtfCompressed.length, 260,
-                Map.of("bwtIndex", "needed", "mtfDict", "needed")));
-        } catch (Exception e) {
-            System.out.println("BWT+MTF failed: " + e.getMessage());
-        }
+        // Нужно хранить: BWT-индекс (4 байта) + MTF-словарь (максимум 256 байт, но можно сжать)
+        candidates.add(new Candidate("BWT+MTF", true, bwt.thenApplyAsync(bwtResult ->
+            new TransformResult("BWT+MTF", applyMTF(bwtResult.transformed), 0, 260,
+                Map.of("bwtIndex", "needed", "mtfDict", "needed")), CANDIDATE_POOL)));
         
         // 3. Обратимая сортировка с хранением перестановки
-        String sortedAsc = sortWithPermutation(input, true);
-        byte[] sortedCompressed = compressor.compressZip(sortedAsc);
         // Нужно хранить перестановку (индексы исходных позиций)
         // Для строки 112 символов - это 112 байт (можно сжать)
-        results.add(new TransformResult("Сорт_с_перестановкой", sortedAsc, sortedCompressed.length, 112,
-            Map.of("type", "sorted_asc_with_perm")));
+        candidates.add(new Candidate("Сорт_с_перестановкой", false, CompletableFuture.supplyAsync(() ->
+            new TransformResult("Сорт_с_перестановкой", sortWithPermutation(input, true), 0, 112,
+                Map.of("type", "sorted_asc_with_perm")), CANDIDATE_POOL)));
         
-        // 4. Обратимый XOR с известным ключом
-        String xored = xorWithKey(input, 42); // ключ 42
-        byte[] xoredCompressed = compressor.compressZip(xored);
+        // 4. Обратимый XOR с известным ключом (ключ 42)
         // Нужно хранить только ключ (1 байт)
-        results.add(new TransformResult("XOR_ключ42", xored, xoredCompressed.length, 1,
-            Map.of("key", 42)));
+        candidates.add(new Candidate("XOR_ключ42", false, CompletableFuture.supplyAsync(() ->
+            new TransformResult("XOR_ключ42", xorWithKey(input, 42), 0, 1,
+                Map.of("key", 42)), CANDIDATE_POOL)));
         
         // 5. Run-Length Encoding (RLE) - обратимое сжатие повторов
-        String rleEncoded = simpleRLE(input);
-        byte[] rleCompressed = compressor.compressZip(rleEncoded);
         // RLE сам по себе сжимает, но мы его ещё сжимаем ZIP'ом
-        results.add(new TransformResult("RLE", rleEncoded, rleCompressed.length, 0,
-            Map.of("type", "run_length")));
+        candidates.add(new Candidate("RLE", false, CompletableFuture.supplyAsync(() ->
+            new TransformResult("RLE", simpleRLE(input), 0, 0,
+                Map.of("type", "run_length")), CANDIDATE_POOL)));
         
-        return results;
+        return candidates;
     }
     
-    private static String applyMTF(String input) {
-        // Простая реализация Move-To-Front
-        List<Character> alphabet = new ArrayList<>();
-        for (int i = 0; i < 256; i++) {
-            alphabet.add((char) i);
+    // Ожидаем кандидата; ошибки BWT-веток только логируются, как и раньше
+    private static void collect(List<TransformResult> results, String name,
+                                CompletableFuture<TransformResult> candidate, boolean optional) {
+        try {
+            results.add(candidate.join());
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            if (!optional) {
+                if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+                throw e;
+            }
+            System.out.println(name + " failed: " + cause.getMessage());
         }
-        
-        StringBuilder result = new StringBuilder();
-        for (char c : input.toCharArray()) {
-            int index = alphabet.indexOf(c);
-            result.append((char) index);
-            // Перемещаем символ в начало
-            alphabet.remove(index);
-            alphabet.add(0, c);
+    }
+    
+    private static String applyMTF(String input) {
+        // Move-To-Front на примитивном массиве: символы BWT укладываются в байт
+        byte[] bytes = new byte[input.length()];
+        for (int i = 0; i < bytes.length; i++) {
+            char c = input.charAt(i);
+            if (c > 0xFF) {
+                throw new IllegalArgumentException("MTF поддерживает только символы 0..255");
+            }
+            bytes[i] = (byte) c;
         }
-        return result.toString();
+        return new String(MoveToFront.encode(bytes), java.nio.charset.StandardCharsets.ISO_8859_1);
     }
     
     private static String sortWithPermutation(String input, boolean ascending) {
@@ -147,6 +181,19 @@ public class TransformLibrary {
         return result.toString();
     }
     
+    // Кандидат: имя и будущий результат преобразования
+    private static class Candidate {
+        final String name;
+        final boolean optional; // ошибка кандидата не прерывает оценку
+        final CompletableFuture<TransformResult> prepared;
+        
+        Candidate(String name, boolean optional, CompletableFuture<TransformResult> prepared) {
+            this.name = name;
+            this.optional = optional;
+            this.prepared = prepared;
+        }
+    }
+    
     private static class CharWithIndex {
         final char ch;
         final int originalIndex;
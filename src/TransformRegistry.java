@@ -0,0 +1,69 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.atomic.AtomicReference;
+import spi.TransformMethod;
+
+public class TransformRegistry {
+    
+    // Неизменяемая мапа "сигнатура -> обработчик". Запись — копирование
+    // с заменой ссылки (CAS), чтение — одно volatile-чтение без блокировок.
+    // Кто взял snapshot(), видит одну целую версию базы до конца работы
+    private final AtomicReference<Map<String, TransformMethod>> methods =
+        new AtomicReference<>(Map.of());
+    
+    public TransformMethod get(String signature) {
+        return methods.get().get(signature);
+    }
+    
+    public Map<String, TransformMethod> snapshot() {
+        return methods.get();
+    }
+    
+    // Регистрирует или заменяет обработчик; возвращает прежний или null
+    public TransformMethod register(TransformMethod method) {
+        return registerAll(List.of(method)).get(method.getSignature());
+    }
+    
+    // Все обработчики появляются одной версией базы. Возвращает
+    // заменённые обработчики по сигнатурам
+    public Map<String, TransformMethod> registerAll(Collection<? extends TransformMethod> added) {
+        while (true) {
+            Map<String, TransformMethod> current = methods.get();
+            Map<String, TransformMethod> next = new HashMap<>(current);
+            Map<String, TransformMethod> replaced = new HashMap<>();
+            for (TransformMethod method : added) {
+                next.put(method.getSignature(), method);
+                TransformMethod previous = current.get(method.getSignature());
+                if (previous != null) replaced.put(method.getSignature(), previous);
+            }
+            if (methods.compareAndSet(current, Map.copyOf(next))) return replaced;
+        }
+    }
+    
+    public TransformMethod unregister(String signature) {
+        while (true) {
+            Map<String, TransformMethod> current = methods.get();
+            TransformMethod previous = current.get(signature);
+            if (previous == null) return null;
+            Map<String, TransformMethod> next = new HashMap<>(current);
+            next.remove(signature);
+            if (methods.compareAndSet(current, Map.copyOf(next))) return previous;
+        }
+    }
+    
+    // Подхватывает обработчики, объявленные через ServiceLoader. Можно
+    // вызывать повторно с новым загрузчиком классов — найденные
+    // обработчики заменят одноимённые; возвращает их число
+    public int loadServices(ClassLoader loader) {
+        List<TransformMethod> found = new ArrayList<>();
+        for (TransformMethod method : ServiceLoader.load(TransformMethod.class, loader)) {
+            found.add(method);
+        }
+        if (!found.isEmpty()) registerAll(found);
+        return found.size();
+    }
+}
\ No newline at end of file
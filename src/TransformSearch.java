@@ -0,0 +1,234 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import spi.ParamReader;
+import spi.ParamWriter;
+import spi.TransformMethod;
+
+public class TransformSearch {
+    
+    // Сколько префиксов последовательности помнит каждый поток
+    private static final int PREFIX_CACHE = 64;
+    // Общий на все потоки лимит символов в кэшах префиксов (~64 МБ);
+    // на больших входах и многих ядрах кэш ограничивает именно он
+    private static final long PREFIX_CACHE_CHARS = 32L << 20;
+    // Раз в столько шагов поток перескакивает на общий лучший результат
+    private static final int SYNC_INTERVAL = 64;
+    
+    // Имитация отжига по последовательностям преобразований из db.
+    // Каждый поток ведёт свою цепочку со своим SplittableRandom, лучший
+    // результат общий (AtomicReference) и периодически подхватывается
+    // остальными. Температура падает до нуля к концу бюджета времени.
+    // В общий лучший попадают только последовательности, которые
+    // проверенно распаковываются обратно в input
+    public static Result search(String input, Map<String, TransformMethod> db,
+                                int maxDepth, long budgetMillis, int workers, long seed) {
+        List<String> signatures = new ArrayList<>(db.keySet());
+        Collections.sort(signatures);
+        long deadline = System.nanoTime() + budgetMillis * 1_000_000L;
+        
+        long cacheChars = PREFIX_CACHE_CHARS / Math.max(1, workers);
+        Worker first = new Worker(input, db, signatures, maxDepth, null, cacheChars);
+        Result initial = first.evaluate(Collections.emptyList());
+        AtomicReference<Result> best = new AtomicReference<>(initial);
+        AtomicLong evaluations = new AtomicLong(1);
+        
+        if (signatures.isEmpty() || maxDepth <= 0) return initial.withEvaluations(1);
+        
+        SplittableRandom root = new SplittableRandom(seed);
+        ExecutorService pool = Executors.newFixedThreadPool(workers, r -> {
+            Thread thread = new Thread(r, "transform-search");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> running = new ArrayList<>();
+            for (int w = 0; w < workers; w++) {
+                Worker worker = new Worker(input, db, signatures, maxDepth, root.split(), cacheChars);
+                running.add(pool.submit(() -> worker.anneal(initial, best, evaluations, deadline, budgetMillis)));
+            }
+            for (Future<?> future : running) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Поиск упал", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        return best.get().withEvaluations(evaluations.get());
+    }
+    
+    private static class Worker {
+        private final String input;
+        private final Map<String, TransformMethod> db;
+        private final List<String> signatures;
+        private final int maxDepth;
+        private final SplittableRandom random;
+        // Промежуточные результаты по префиксам последовательности (LRU),
+        // ограничены и числом, и суммарной длиной строк
+        private final LinkedHashMap<List<String>, Stage> prefixes = new LinkedHashMap<>(16, 0.75f, true);
+        private final long cacheChars;
+        private long cachedChars;
+        
+        Worker(String input, Map<String, TransformMethod> db, List<String> signatures,
+               int maxDepth, SplittableRandom random, long cacheChars) {
+            this.input = input;
+            this.db = db;
+            this.signatures = signatures;
+            this.maxDepth = maxDepth;
+            this.random = random;
+            this.cacheChars = cacheChars;
+        }
+        
+        void anneal(Result start, AtomicReference<Result> best, AtomicLong evaluations,
+                    long deadline, long budgetMillis) {
+            Result current = start;
+            double startTemperature = Math.max(1, start.cost * 0.02);
+            long budgetNanos = Math.max(1, budgetMillis * 1_000_000L);
+            for (int step = 1; ; step++) {
+                long left = deadline - System.nanoTime();
+                if (left <= 0 || Thread.currentThread().isInterrupted()) return;
+                double temperature = startTemperature * left / budgetNanos;
+                
+                if (step % SYNC_INTERVAL == 0 && best.get().cost < current.cost) {
+                    current = best.get();
+                }
+                Result next = evaluate(neighbour(current.patterns));
+                evaluations.incrementAndGet();
+                if (next == null) continue;
+                
+                long delta = next.cost - current.cost;
+                if (delta <= 0 || random.nextDouble() < Math.exp(-delta / temperature)) {
+                    current = next;
+                }
+                if (next.cost < best.get().cost && verify(next)) {
+                    best.accumulateAndGet(next, (a, b) -> b.cost < a.cost ? b : a);
+                }
+            }
+        }
+        
+        // Соседняя последовательность: вставка, удаление, замена или обмен
+        private List<String> neighbour(List<String> patterns) {
+            List<String> next = new ArrayList<>(patterns);
+            int size = next.size();
+            int move = random.nextInt(4);
+            if (size == 0 || (move == 0 && size < maxDepth)) {
+                next.add(random.nextInt(size + 1), randomSignature());
+            } else if (move == 1) {
+                next.remove(random.nextInt(size));
+            } else if (move == 2 || size == 1) {
+                next.set(random.nextInt(size), randomSignature());
+            } else {
+                int i = random.nextInt(size - 1);
+                Collections.swap(next, i, i + 1);
+            }
+            return next;
+        }
+        
+        private String randomSignature() {
+            return signatures.get(random.nextInt(signatures.size()));
+        }
+        
+        // Применяет последовательность, начиная с самого длинного
+        // запомненного префикса; null — обработчик упал на этих данных
+        Result evaluate(List<String> patterns) {
+            int known = patterns.size();
+            Stage stage = null;
+            while (known > 0 && (stage = prefixes.get(patterns.subList(0, known))) == null) {
+                known--;
+            }
+            if (stage == null) stage = new Stage(input, Collections.emptyList(), 0);
+            
+            for (int i = known; i < patterns.size(); i++) {
+                ParamWriter params = new ParamWriter();
+                String transformed;
+                try {
+                    transformed = db.get(patterns.get(i)).encode(stage.data, params);
+                } catch (RuntimeException e) {
+                    return null;
+                }
+                List<byte[]> allParams = new ArrayList<>(stage.params);
+                allParams.add(params.toByteArray());
+                stage = new Stage(transformed, allParams, stage.paramCost + params.size());
+                remember(new ArrayList<>(patterns.subList(0, i + 1)), stage);
+            }
+            int compressed = ZipCodec.DEFAULT.compressedSize(stage.data);
+            return new Result(new ArrayList<>(patterns), stage.params, stage.data,
+                compressed, compressed + stage.paramCost, 0);
+        }
+        
+        // Строка длиннее всего лимита не кэшируется вовсе
+        private void remember(List<String> prefix, Stage stage) {
+            if (stage.data.length() > cacheChars) return;
+            Stage previous = prefixes.put(prefix, stage);
+            cachedChars += stage.data.length() - (previous == null ? 0 : previous.data.length());
+            Iterator<Stage> eldest = prefixes.values().iterator();
+            while (prefixes.size() > PREFIX_CACHE || cachedChars > cacheChars) {
+                cachedChars -= eldest.next().data.length();
+                eldest.remove();
+            }
+        }
+        
+        private boolean verify(Result result) {
+            String current = result.transformed;
+            try {
+                for (int i = result.patterns.size() - 1; i >= 0; i--) {
+                    current = db.get(result.patterns.get(i)).decode(current, new ParamReader(result.params.get(i)));
+                }
+            } catch (RuntimeException e) {
+                return false;
+            }
+            return current.equals(input);
+        }
+    }
+    
+    private static class Stage {
+        final String data;
+        final List<byte[]> params;
+        final int paramCost;
+        
+        Stage(String data, List<byte[]> params, int paramCost) {
+            this.data = data;
+            this.params = params;
+            this.paramCost = paramCost;
+        }
+    }
+    
+    // Лучшая найденная последовательность: преобразованные данные,
+    // параметры каждого шага и размер после ZIP
+    public static class Result {
+        public final List<String> patterns;
+        public final List<byte[]> params;
+        public final String transformed;
+        public final int compressedSize;
+        // Размер после ZIP плюс размер параметров — по ней сравниваем
+        public final long cost;
+        public final long evaluations;
+        
+        Result(List<String> patterns, List<byte[]> params, String transformed,
+               int compressedSize, long cost, long evaluations) {
+            this.patterns = patterns;
+            this.params = params;
+            this.transformed = transformed;
+            this.compressedSize = compressedSize;
+            this.cost = cost;
+            this.evaluations = evaluations;
+        }
+        
+        Result withEvaluations(long evaluations) {
+            return new Result(patterns, params, transformed, compressedSize, cost, evaluations);
+        }
+    }
+}
\ No newline at end of file
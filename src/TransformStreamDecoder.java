@@ -0,0 +1,241 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+public class TransformStreamDecoder {
+    
+    private static final int CHUNK = 64 * 1024;
+    
+    // Потоковая распаковка контейнера BinaryTransform: исходные байты пишутся
+    // в out по мере чтения. В памяти держится только таблица преобразования
+    // и буфер на CHUNK байт; исключение — SORT: позиции разбросаны по всему
+    // выходу, поэтому он собирается целиком (n байт, без копии входа).
+    // Читается ровно один контейнер; входной поток лучше передавать
+    // буферизованным — varint читаются побайтно
+    public static long decode(InputStream in, OutputStream out) throws IOException {
+        int tag = in.read();
+        if (tag < 0) throw new EOFException("Пустой поток");
+        int n = VarInts.read(in);
+        switch ((byte) tag) {
+            case BinaryTransform.RAW:
+                copyRaw(in, out, n);
+                break;
+            case BinaryTransform.SORT:
+                decodeSort(in, out, n);
+                break;
+            case BinaryTransform.FREQ:
+                decodeFrequency(in, out, n);
+                break;
+            case BinaryTransform.RLE:
+                decodeRunLength(in, out, n);
+                break;
+            case BinaryTransform.CYC:
+                decodeCycles(in, out, n);
+                break;
+            default:
+                throw new IOException("Неизвестное преобразование: " + tag);
+        }
+        return n;
+    }
+    
+    public static long decode(ReadableByteChannel in, WritableByteChannel out) throws IOException {
+        OutputStream stream = Channels.newOutputStream(out);
+        long written = decode(Channels.newInputStream(in), stream);
+        stream.flush();
+        return written;
+    }
+    
+    private static void copyRaw(InputStream in, OutputStream out, int n) throws IOException {
+        Body body = new Body(in);
+        if (body.remaining != n) throw new IOException("Размер тела не совпадает с заголовком");
+        copy(body, out, n, new byte[Math.min(CHUNK, Math.max(1, n))]);
+        body.expectEnd();
+    }
+    
+    // SORT: таблица групп, затем позиции каждой группы — сразу в выходной массив
+    private static void decodeSort(InputStream in, OutputStream out, int n) throws IOException {
+        int groups = VarInts.read(in);
+        if (groups < 0 || groups > 256) throw new IOException("Повреждена таблица групп: " + groups);
+        byte[] symbols = new byte[groups];
+        int[] counts = new int[groups];
+        long total = 0;
+        for (int g = 0; g < groups; g++) {
+            symbols[g] = readByte(in);
+            counts[g] = VarInts.read(in);
+            total += counts[g];
+        }
+        if (total != n) throw new IOException("Размер групп не совпадает с заголовком");
+        
+        Body body = new Body(in);
+        byte[] result = new byte[n];
+        for (int g = 0; g < groups; g++) {
+            int pos = -1;
+            for (int c = 0; c < counts[g]; c++) {
+                pos += VarInts.read(body) + 1;
+                if (pos >= n) throw new IOException("Позиция вне данных: " + pos);
+                result[pos] = symbols[g];
+            }
+        }
+        body.expectEnd();
+        out.write(result);
+    }
+    
+    // FREQ: таблица рангов в памяти, тело переводится кусками
+    private static void decodeFrequency(InputStream in, OutputStream out, int n) throws IOException {
+        int groups = VarInts.read(in);
+        if (groups < 0 || groups > 256) throw new IOException("Слишком большая таблица рангов: " + groups);
+        byte[] symbols = new byte[groups];
+        readFully(in, symbols, 0, groups);
+        
+        Body body = new Body(in);
+        if (body.remaining != n) throw new IOException("Размер тела не совпадает с заголовком");
+        byte[] buffer = new byte[Math.min(CHUNK, Math.max(1, n))];
+        int left = n;
+        while (left > 0) {
+            int chunk = Math.min(left, buffer.length);
+            readFully(body, buffer, 0, chunk);
+            for (int i = 0; i < chunk; i++) {
+                int r = buffer[i] & 0xFF;
+                if (r >= groups) throw new IOException("Ранг вне таблицы: " + r);
+                buffer[i] = symbols[r];
+            }
+            out.write(buffer, 0, chunk);
+            left -= chunk;
+        }
+        body.expectEnd();
+    }
+    
+    // RLE: токены читаются по одному, состояние постоянное
+    private static void decodeRunLength(InputStream in, OutputStream out, int n) throws IOException {
+        Body body = new Body(in);
+        byte[] buffer = new byte[CHUNK];
+        long written = 0;
+        while (body.remaining > 0) {
+            int token = VarInts.read(body);
+            int length = token >>> 1;
+            if (written + length > n) throw new IOException("Серия выходит за размер данных");
+            if ((token & 1) != 0) {
+                byte b = readByte(body);
+                Arrays.fill(buffer, 0, Math.min(length, buffer.length), b);
+                for (int left = length; left > 0; left -= buffer.length) {
+                    out.write(buffer, 0, Math.min(left, buffer.length));
+                }
+            } else {
+                copy(body, out, length, buffer);
+            }
+            written += length;
+        }
+        if (written != n) throw new IOException("Размер тела не совпадает с заголовком");
+    }
+    
+    // CYC: таблица участков в памяти, из тела держим только текущий период.
+    // Каждый участок даёт хотя бы байт выхода, поэтому их не больше n;
+    // таблица растёт по мере чтения, а не по заявленному числу
+    private static void decodeCycles(InputStream in, OutputStream out, int n) throws IOException {
+        int count = VarInts.read(in);
+        long entries = count * 3L;
+        if (count < 0 || count > n || entries > Integer.MAX_VALUE - 8) {
+            throw new IOException("Повреждена таблица участков: " + count);
+        }
+        int[] runs = new int[(int) Math.min(entries, 3 * 1024)];
+        for (int i = 0; i < entries; i++) {
+            if (i == runs.length) runs = Arrays.copyOf(runs, (int) Math.min(entries, runs.length * 2L));
+            runs[i] = VarInts.read(in);
+            if (runs[i] < 0) throw new IOException("Повреждена таблица участков");
+        }
+        
+        Body body = new Body(in);
+        byte[] buffer = new byte[CHUNK];
+        long written = 0;
+        for (int r = 0; r < count; r++) {
+            int gap = runs[r * 3];
+            int period = runs[r * 3 + 1];
+            int repeats = runs[r * 3 + 2];
+            if (period <= 0) throw new IOException("Повреждён участок: период " + period);
+            long total = (long) period * repeats;
+            if (written + gap + total > n) throw new IOException("Участок выходит за размер данных");
+            copy(body, out, gap, buffer);
+            
+            byte[] unit = new byte[period];
+            readFully(body, unit, 0, period);
+            if (period <= buffer.length / 2) {
+                // Короткий период размножаем в буфере и пишем кусками
+                int fill = buffer.length - buffer.length % period;
+                for (int i = 0; i < fill; i += period) {
+                    System.arraycopy(unit, 0, buffer, i, period);
+                }
+                for (long left = total; left > 0; left -= fill) {
+                    out.write(buffer, 0, (int) Math.min(left, fill));
+                }
+            } else {
+                for (int i = 0; i < repeats; i++) {
+                    out.write(unit);
+                }
+            }
+            written += gap + total;
+        }
+        if (body.remaining != n - written) throw new IOException("Размер тела не совпадает с заголовком");
+        copy(body, out, body.remaining, buffer);
+        body.expectEnd();
+    }
+    
+    private static void copy(InputStream in, OutputStream out, int length, byte[] buffer) throws IOException {
+        while (length > 0) {
+            int chunk = Math.min(length, buffer.length);
+            readFully(in, buffer, 0, chunk);
+            out.write(buffer, 0, chunk);
+            length -= chunk;
+        }
+    }
+    
+    private static void readFully(InputStream in, byte[] buffer, int offset, int length) throws IOException {
+        while (length > 0) {
+            int read = in.read(buffer, offset, length);
+            if (read < 0) throw new EOFException("Поток оборвался");
+            offset += read;
+            length -= read;
+        }
+    }
+    
+    private static byte readByte(InputStream in) throws IOException {
+        int b = in.read();
+        if (b < 0) throw new EOFException("Поток оборвался");
+        return (byte) b;
+    }
+    
+    // Тело контейнера: не даёт прочитать больше объявленной длины
+    private static class Body extends InputStream {
+        private final InputStream in;
+        int remaining;
+        
+        Body(InputStream in) throws IOException {
+            this.in = in;
+            this.remaining = VarInts.read(in);
+        }
+        
+        @Override
+        public int read() throws IOException {
+            if (remaining == 0) return -1;
+            int b = in.read();
+            if (b >= 0) remaining--;
+            return b;
+        }
+        
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (remaining == 0) return -1;
+            int read = in.read(buffer, offset, Math.min(length, remaining));
+            if (read > 0) remaining -= read;
+            return read;
+        }
+        
+        void expectEnd() throws IOException {
+            if (remaining != 0) throw new IOException("Размер тела не совпадает с заголовком");
+        }
+    }
+}
\ No newline at end of file
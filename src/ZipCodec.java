@@ -0,0 +1,278 @@
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+public class ZipCodec {
+    
+    // Общий кодек с параметрами GZIPOutputStream по умолчанию
+    public static final ZipCodec DEFAULT = new ZipCodec(Deflater.DEFAULT_COMPRESSION, Deflater.DEFAULT_STRATEGY);
+    
+    // Заголовок GZIP как у GZIPOutputStream: magic, DEFLATE, без флагов, ОС неизвестна
+    private static final byte[] HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+    private static final int TRAILER_SIZE = 8;
+    private static final int CHUNK = 64 * 1024;
+    
+    // Нативные Deflater/Inflater живут в потоке и переиспользуются через reset()
+    private final ThreadLocal<Deflater> deflaters;
+    private static final ThreadLocal<Inflater> INFLATERS = ThreadLocal.withInitial(() -> new Inflater(true));
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+    
+    private final int level;
+    private final int strategy;
+    
+    public ZipCodec(int level, int strategy) {
+        this.level = level;
+        this.strategy = strategy;
+        this.deflaters = ThreadLocal.withInitial(() -> {
+            Deflater deflater = new Deflater(level, true);
+            deflater.setStrategy(strategy);
+            return deflater;
+        });
+    }
+    
+    public int getLevel() {
+        return level;
+    }
+    
+    public int getStrategy() {
+        return strategy;
+    }
+    
+    // Верхняя граница размера GZIP для n байт (как compressBound в zlib)
+    public static int maxCompressedSize(int n) {
+        long bound = (long) n + (n >> 12) + (n >> 14) + (n >> 25) + 13 + HEADER.length + TRAILER_SIZE;
+        return (int) Math.min(Integer.MAX_VALUE, bound);
+    }
+    
+    // Сжимает оставшиеся байты in в буфер вызывающего, возвращает размер GZIP.
+    // Позиции обоих буферов сдвигаются; при нехватке места — BufferOverflowException
+    public int compress(ByteBuffer in, ByteBuffer out) {
+        int start = out.position();
+        int length = in.remaining();
+        
+        Scratch scratch = SCRATCH.get();
+        CRC32 crc = scratch.crc;
+        crc.reset();
+        crc.update(in.duplicate());
+        
+        out.put(HEADER);
+        Deflater deflater = pooledDeflater();
+        deflater.setInput(in);
+        deflater.finish();
+        while (!deflater.finished()) {
+            if (!out.hasRemaining()) throw new BufferOverflowException();
+            deflater.deflate(out);
+        }
+        if (out.remaining() < TRAILER_SIZE) throw new BufferOverflowException();
+        writeTrailer(out, (int) crc.getValue(), length);
+        return out.position() - start;
+    }
+    
+    public byte[] compress(byte[] data) {
+        ByteBuffer out = ByteBuffer.allocate(maxCompressedSize(data.length));
+        compress(ByteBuffer.wrap(data), out);
+        return Arrays.copyOf(out.array(), out.position());
+    }
+    
+    // Строка кодируется в UTF-8 кусками, без полной копии в byte[]
+    public byte[] compress(CharSequence text) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, text.length() / 4));
+        deflateText(text, out::write);
+        return out.toByteArray();
+    }
+    
+    // Размер GZIP без сохранения результата
+    public int compressedSize(ByteBuffer in) {
+        Scratch scratch = SCRATCH.get();
+        Deflater deflater = pooledDeflater();
+        deflater.setInput(in);
+        deflater.finish();
+        long size = HEADER.length + TRAILER_SIZE;
+        while (!deflater.finished()) {
+            size += deflater.deflate(scratch.output, 0, scratch.output.length);
+        }
+        return (int) size;
+    }
+    
+    public int compressedSize(byte[] data) {
+        return compressedSize(ByteBuffer.wrap(data));
+    }
+    
+    public int compressedSize(CharSequence text) {
+        int[] size = new int[1];
+        deflateText(text, (buf, off, len) -> size[0] += len);
+        return size[0];
+    }
+    
+    // Распаковка GZIP целиком
+    public static byte[] decompress(byte[] gzip) {
+        ByteBuffer in = ByteBuffer.wrap(gzip);
+        ByteBuffer out = ByteBuffer.allocate(Math.max(64, uncompressedSizeHint(gzip)));
+        while (true) {
+            try {
+                decompress(in.duplicate(), out);
+                return Arrays.copyOf(out.array(), out.position());
+            } catch (BufferOverflowException e) {
+                out = ByteBuffer.allocate(out.capacity() * 2);
+            }
+        }
+    }
+    
+    public static String decompressToString(byte[] gzip) {
+        return new String(decompress(gzip), StandardCharsets.UTF_8);
+    }
+    
+    // Распаковка в буфер вызывающего; возвращает число распакованных байт
+    public static int decompress(ByteBuffer in, ByteBuffer out) {
+        int start = out.position();
+        skipHeader(in);
+        
+        Inflater inflater = INFLATERS.get();
+        inflater.reset();
+        inflater.setInput(in);
+        try {
+            while (!inflater.finished()) {
+                if (!out.hasRemaining()) throw new BufferOverflowException();
+                int n = inflater.inflate(out);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalArgumentException("Обрезанный поток GZIP");
+                }
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Повреждённый поток GZIP: " + e.getMessage(), e);
+        }
+        
+        // Проверяем CRC и длину из хвоста
+        if (in.remaining() < TRAILER_SIZE) throw new IllegalArgumentException("Нет хвоста GZIP");
+        int expectedCrc = readIntLE(in);
+        int expectedSize = readIntLE(in);
+        int size = out.position() - start;
+        CRC32 crc = SCRATCH.get().crc;
+        crc.reset();
+        ByteBuffer written = out.duplicate();
+        written.flip().position(start);
+        crc.update(written);
+        if ((int) crc.getValue() != expectedCrc || size != expectedSize) {
+            throw new IllegalArgumentException("Контрольная сумма GZIP не совпадает");
+        }
+        return size;
+    }
+    
+    // Deflater текущего потока, готовый к новому сжатию
+    Deflater pooledDeflater() {
+        Deflater deflater = deflaters.get();
+        deflater.reset();
+        return deflater;
+    }
+    
+    private void deflateText(CharSequence text, Sink sink) {
+        Scratch scratch = SCRATCH.get();
+        CharsetEncoder encoder = scratch.encoder.reset();
+        CRC32 crc = scratch.crc;
+        crc.reset();
+        Deflater deflater = pooledDeflater();
+        
+        sink.write(HEADER, 0, HEADER.length);
+        CharBuffer chars = CharBuffer.wrap(text);
+        ByteBuffer chunk = scratch.input;
+        long total = 0;
+        boolean done = false;
+        while (!done) {
+            chunk.clear();
+            CoderResult result = encoder.encode(chars, chunk, true);
+            if (result.isUnderflow()) {
+                encoder.flush(chunk);
+                done = true;
+            }
+            chunk.flip();
+            int length = chunk.limit();
+            total += length;
+            crc.update(chunk.array(), 0, length);
+            deflater.setInput(chunk.array(), 0, length);
+            while (!deflater.needsInput()) {
+                int n = deflater.deflate(scratch.output, 0, scratch.output.length, Deflater.NO_FLUSH);
+                sink.write(scratch.output, 0, n);
+            }
+        }
+        deflater.finish();
+        while (!deflater.finished()) {
+            int n = deflater.deflate(scratch.output, 0, scratch.output.length);
+            sink.write(scratch.output, 0, n);
+        }
+        
+        byte[] trailer = new byte[TRAILER_SIZE];
+        writeTrailer(ByteBuffer.wrap(trailer), (int) crc.getValue(), (int) total);
+        sink.write(trailer, 0, TRAILER_SIZE);
+    }
+    
+    private static void writeTrailer(ByteBuffer out, int crc, int size) {
+        writeIntLE(out, crc);
+        writeIntLE(out, size);
+    }
+    
+    private static void writeIntLE(ByteBuffer out, int value) {
+        out.put((byte) value);
+        out.put((byte) (value >>> 8));
+        out.put((byte) (value >>> 16));
+        out.put((byte) (value >>> 24));
+    }
+    
+    private static int readIntLE(ByteBuffer in) {
+        return (in.get() & 0xFF) | (in.get() & 0xFF) << 8 | (in.get() & 0xFF) << 16 | (in.get() & 0xFF) << 24;
+    }
+    
+    // Пропускаем заголовок GZIP вместе с необязательными полями
+    private static void skipHeader(ByteBuffer in) {
+        if (in.remaining() < HEADER.length || in.get() != 0x1f || in.get() != (byte) 0x8b) {
+            throw new IllegalArgumentException("Это не GZIP");
+        }
+        if (in.get() != Deflater.DEFLATED) throw new IllegalArgumentException("Неизвестный метод GZIP");
+        int flags = in.get() & 0xFF;
+        // Необязательные поля могут выходить за конец буфера
+        try {
+            in.position(in.position() + 6); // время, флаги сжатия, ОС
+            if ((flags & 4) != 0) {
+                int extra = (in.get() & 0xFF) | (in.get() & 0xFF) << 8;
+                in.position(in.position() + extra);
+            }
+            if ((flags & 8) != 0) while (in.get() != 0) { }
+            if ((flags & 16) != 0) while (in.get() != 0) { }
+            if ((flags & 2) != 0) in.position(in.position() + 2);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Обрезанный заголовок GZIP", e);
+        }
+    }
+    
+    // ISIZE из хвоста — исходный размер по модулю 2^32
+    private static int uncompressedSizeHint(byte[] gzip) {
+        if (gzip.length < HEADER.length + TRAILER_SIZE) return 0;
+        long size = readIntLE(ByteBuffer.wrap(gzip, gzip.length - 4, 4)) & 0xFFFFFFFFL;
+        // Deflate не сжимает сильнее ~1032:1, поэтому повреждённый хвост не раздует буфер
+        return (int) Math.min(size, Math.min(Integer.MAX_VALUE - 8, gzip.length * 1032L));
+    }
+    
+    private interface Sink {
+        void write(byte[] buffer, int offset, int length);
+    }
+    
+    // Буферы потока: вход/выход Deflater, кодировщик UTF-8 и CRC
+    private static class Scratch {
+        final ByteBuffer input = ByteBuffer.allocate(CHUNK);
+        final byte[] output = new byte[CHUNK];
+        final CRC32 crc = new CRC32();
+        final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+}
\ No newline at end of file
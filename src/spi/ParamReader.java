@@ -0,0 +1,55 @@
+package spi;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public class ParamReader {
+    
+    // Чтение параметров, записанных ParamWriter, в том же порядке
+    private final ByteBuffer in;
+    private int lastPosition;
+    
+    public ParamReader(byte[] params) {
+        this.in = ByteBuffer.wrap(params);
+    }
+    
+    public int readInt() {
+        try {
+            // varint (LEB128) как в VarInts
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                byte b = in.get();
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    // Формат беззнаковый: пятый байт не может дать знаковый бит
+                    if (value < 0) throw new IllegalArgumentException("Значение вне диапазона int");
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Слишком длинный varint");
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Параметры оборвались");
+        }
+    }
+    
+    // Позиции только растут: переполнение разности — испорченные параметры
+    public int readPosition() {
+        int position = lastPosition + readInt();
+        if (position < lastPosition) throw new IllegalArgumentException("Позиция вне диапазона int");
+        lastPosition = position;
+        return lastPosition;
+    }
+    
+    public String readString() {
+        int length = readInt();
+        if (length > in.remaining()) throw new IllegalArgumentException("Параметры оборвались");
+        String value = new String(in.array(), in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+    
+    public boolean hasRemaining() {
+        return in.hasRemaining();
+    }
+}
\ No newline at end of file
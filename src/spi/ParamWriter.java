@@ -0,0 +1,59 @@
+package spi;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class ParamWriter {
+    
+    // Параметры преобразования в компактном двоичном виде: беззнаковые
+    // varint, позиции — разностями от предыдущей позиции
+    private byte[] buffer = new byte[16];
+    private int size;
+    private int lastPosition;
+    
+    public ParamWriter writeInt(int value) {
+        if (value < 0) throw new IllegalArgumentException("Отрицательное значение: " + value);
+        ensure(5);
+        // varint (LEB128) как в VarInts: пакет spi не видит классов
+        // из пакета по умолчанию
+        while ((value & ~0x7F) != 0) {
+            buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[size++] = (byte) value;
+        return this;
+    }
+    
+    // Позиции должны идти по неубыванию; хранится только разность
+    public ParamWriter writePosition(int position) {
+        if (position < lastPosition) {
+            throw new IllegalArgumentException("Позиции идут не по порядку: " + position + " < " + lastPosition);
+        }
+        writeInt(position - lastPosition);
+        lastPosition = position;
+        return this;
+    }
+    
+    public ParamWriter writeString(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeInt(bytes.length);
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buffer, size, bytes.length);
+        size += bytes.length;
+        return this;
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, size);
+    }
+    
+    private void ensure(int extra) {
+        if (size + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,13 @@
+package spi;
+
+// Обработчик паттерна. Всё, что нужно для обратного преобразования,
+// encode пишет в params, decode читает оттуда в том же порядке.
+// Сторонние обработчики подключаются через ServiceLoader: публичный
+// класс с конструктором без аргументов и его имя
+// в META-INF/services/spi.TransformMethod. Интерфейс и параметры лежат
+// в пакете spi, чтобы их можно было импортировать из пакетов плагинов
+public interface TransformMethod {
+    String encode(String input, ParamWriter params);
+    String decode(String encoded, ParamReader params);
+    String getSignature();
+}
\ No newline at end of file